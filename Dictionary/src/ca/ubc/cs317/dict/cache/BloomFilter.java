@@ -0,0 +1,78 @@
+package ca.ubc.cs317.dict.cache;
+
+/**
+ * A fixed-size Bloom filter of strings. Its size and number of hash functions are chosen from the number of strings
+ * it is expected to hold and the false-positive rate allowed at that point. This class is not thread-safe.
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final int bitCount;
+    private final int hashCount;
+    private int size;
+
+    /** Creates an empty filter.
+     *
+     * @param expectedInsertions Number of strings the filter is sized for.
+     * @param falsePositiveRate Probability of a false positive once expectedInsertions strings were added.
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("Invalid Bloom filter parameters");
+
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        bitCount = (int) Math.min(Math.max(m, 64), Integer.MAX_VALUE - 63);
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+        bits = new long[(bitCount + 63) / 64];
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash, h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+        size++;
+    }
+
+    /** Checks whether a string may have been added to the filter.
+     *
+     * @param value The string to be checked.
+     * @return false if the string was definitely never added, true if it probably was.
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash, h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /** Returns the number of strings added, including duplicates.
+     *
+     * @return The number of insertions.
+     */
+    public int size() {
+        return size;
+    }
+
+    // 64-bit FNV-1a over the characters, followed by a final mix so that both halves are usable as hashes
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,238 @@
+package ca.ubc.cs317.dict.cache;
+
+import ca.ubc.cs317.dict.exception.DictConnectionException;
+import ca.ubc.cs317.dict.index.DefinitionSource;
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+import ca.ubc.cs317.dict.model.MatchingStrategy;
+import ca.ubc.cs317.dict.net.DefinitionListener;
+import ca.ubc.cs317.dict.net.DictionaryClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers lookups from local caches when possible and forwards the others to another DictionaryClient, storing their
+ * results on the way back.
+ */
+public class CachingDictionaryClient implements DictionaryClient {
+
+    private static final int DEFAULT_MAX_ENTRIES = 4096;
+    private static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    private static final long DEFAULT_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+    private static final int DEFAULT_MAX_MATCH_ENTRIES = 1024;
+    private static final int DEFAULT_TRUNCATION_LIMIT = 2000;
+    private static final int DEFAULT_EXPECTED_MISSES = 10000;
+    private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+
+    private final DictionaryClient delegate;
+    private final DefinitionCache definitionCache;
+    private final MatchCache matchCache;
+    private final NegativeCache negativeCache;
+    private volatile DiskDefinitionCache diskCache;
+
+    /** Creates a caching client with the default cache sizes.
+     *
+     * @param delegate The client used for lookups that are not cached.
+     */
+    public CachingDictionaryClient(DictionaryClient delegate) {
+        this(delegate,
+                new DefinitionCache(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, DEFAULT_TIME_TO_LIVE, TimeUnit.MILLISECONDS),
+                new MatchCache(DEFAULT_MAX_MATCH_ENTRIES, DEFAULT_TRUNCATION_LIMIT, DEFAULT_TIME_TO_LIVE, TimeUnit.MILLISECONDS),
+                new NegativeCache(DEFAULT_EXPECTED_MISSES, DEFAULT_FALSE_POSITIVE_RATE, DEFAULT_TIME_TO_LIVE, TimeUnit.MILLISECONDS));
+    }
+
+    /** Creates a caching client using existing caches, which may be shared with other clients of the same server.
+     *
+     * @param delegate The client used for lookups that are not cached.
+     * @param definitionCache The cache of DEFINE results.
+     * @param matchCache The cache of MATCH results.
+     * @param negativeCache The cache of lookups that had no result.
+     */
+    public CachingDictionaryClient(DictionaryClient delegate, DefinitionCache definitionCache, MatchCache matchCache,
+                                   NegativeCache negativeCache) {
+        this.delegate = delegate;
+        this.definitionCache = definitionCache;
+        this.matchCache = matchCache;
+        this.negativeCache = negativeCache;
+    }
+
+    public DictionaryClient getDelegate() {
+        return delegate;
+    }
+
+    public DefinitionCache getDefinitionCache() {
+        return definitionCache;
+    }
+
+    public MatchCache getMatchCache() {
+        return matchCache;
+    }
+
+    public NegativeCache getNegativeCache() {
+        return negativeCache;
+    }
+
+    public DiskDefinitionCache getDiskCache() {
+        return diskCache;
+    }
+
+    /** Adds a persistent cache, consulted for definitions that are not in memory and updated with every definition
+     * received from the server. Errors while reading or writing it are ignored, as if the result was not cached.
+     *
+     * @param diskCache The persistent cache, or null to stop using one.
+     */
+    public void setDiskCache(DiskDefinitionCache diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    /** Lists the definitions cached, for instance to build a DefinitionIndex over their text. They are those of the
+     * persistent cache if there is one, since every definition kept in memory was also stored there, and otherwise
+     * those kept in memory. The definitions are copied, so the list isn't affected by later lookups.
+     *
+     * @param database The database whose definitions are listed, or one of the special databases '*' or '!' to list
+     *                 those of every database.
+     * @return The definitions cached, each listed once.
+     * @throws DictConnectionException If the persistent cache can't be read.
+     */
+    public DefinitionSource getCachedDefinitions(Database database) throws DictConnectionException {
+        List<Definition> cached;
+        DiskDefinitionCache disk = diskCache;
+        if (disk != null) {
+            try {
+                cached = disk.getDefinitions();
+            } catch (IOException e) {
+                throw new DictConnectionException(e);
+            }
+        } else {
+            cached = definitionCache.getDefinitions();
+        }
+
+        final List<Definition> definitions;
+        if (database.getName().equals("*") || database.getName().equals("!")) {
+            definitions = cached;
+        } else {
+            definitions = new ArrayList<>();
+            for (Definition definition : cached) {
+                if (definition.getDatabase().getName().equals(database.getName()))
+                    definitions.add(definition);
+            }
+        }
+        return new DefinitionSource() {
+            @Override
+            public int size() {
+                return definitions.size();
+            }
+
+            @Override
+            public Definition get(int index) {
+                return definitions.get(index);
+            }
+        };
+    }
+
+    @Override
+    public Collection<Definition> getDefinitions(String word, Database database) throws DictConnectionException {
+        Collection<Definition> definitions = definitionCache.get(word, database);
+        if (definitions == null) {
+            if (negativeCache.isKnownMiss(word, NegativeCache.DEFINE, database))
+                return Collections.emptyList();
+            definitions = load(word, database);
+            if (definitions == null) {
+                definitions = delegate.getDefinitions(word, database);
+                store(word, database, definitions);
+            }
+        }
+        return definitions;
+    }
+
+    @Override
+    public Collection<Definition> getDefinitions(String word, Database database, DefinitionListener listener) throws DictConnectionException {
+        Collection<Definition> definitions = definitionCache.get(word, database);
+        if (definitions == null) {
+            if (negativeCache.isKnownMiss(word, NegativeCache.DEFINE, database))
+                return Collections.emptyList();
+            Collection<Definition> stored = load(word, database);
+            if (stored == null) {
+                definitions = delegate.getDefinitions(word, database, listener);
+                store(word, database, definitions);
+                return definitions;
+            }
+            definitions = stored;
+        }
+        for (Definition definition : definitions)
+            listener.definitionReceived(definition);
+        return definitions;
+    }
+
+    @Override
+    public Set<String> getMatchList(String word, MatchingStrategy strategy, Database database) throws DictConnectionException {
+        Set<String> matches = matchCache.get(word, strategy, database);
+        if (matches == null) {
+            if (negativeCache.isKnownMiss(word, strategy.getName(), database))
+                return new LinkedHashSet<>();
+            matches = delegate.getMatchList(word, strategy, database);
+            if (matches.isEmpty())
+                negativeCache.recordMiss(word, strategy.getName(), database);
+            // Empty results are kept here too, since they also answer every longer prefix. The empty word lists every
+            // headword of the database, which is only requested to build an index and would fill the cache.
+            if (!word.isEmpty())
+                matchCache.put(word, strategy, database, matches);
+        }
+        return matches;
+    }
+
+    @Override
+    public Collection<Database> getDatabaseList() throws DictConnectionException {
+        return delegate.getDatabaseList();
+    }
+
+    @Override
+    public Set<MatchingStrategy> getStrategyList() throws DictConnectionException {
+        return delegate.getStrategyList();
+    }
+
+    private Collection<Definition> load(String word, Database database) {
+        DiskDefinitionCache disk = diskCache;
+        if (disk == null)
+            return null;
+        try {
+            Collection<Definition> definitions = disk.get(word, database);
+            if (definitions != null)
+                definitionCache.put(word, database, definitions);
+            return definitions;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void store(String word, Database database, Collection<Definition> definitions) {
+        if (definitions.isEmpty()) {
+            negativeCache.recordMiss(word, NegativeCache.DEFINE, database);
+            return;
+        }
+        definitionCache.put(word, database, definitions);
+        DiskDefinitionCache disk = diskCache;
+        if (disk != null) {
+            try {
+                disk.put(word, database, definitions);
+            } catch (IOException e) {
+                // The persistent cache is only an optimization
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        DiskDefinitionCache disk = diskCache;
+        if (disk != null)
+            disk.close();
+        delegate.close();
+    }
+}
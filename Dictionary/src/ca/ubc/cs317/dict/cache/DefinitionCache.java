@@ -0,0 +1,224 @@
+package ca.ubc.cs317.dict.cache;
+
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread-safe, least-recently-used cache of DEFINE results, keyed by word and database name. The cache is bounded
+ * both by number of entries and by the approximate size of the definition text it holds, and entries expire after a
+ * fixed time to live.
+ *
+ * Results for the special databases are used to answer other lookups: a cached '*' result contains every definition
+ * of the word in server order, so it also answers the same word in any regular database (keeping only that database's
+ * definitions) and in '!' (keeping only the first database that has one).
+ */
+public class DefinitionCache {
+
+    private static final String ALL_DATABASES = "*";
+    private static final String FIRST_DATABASE = "!";
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long timeToLive;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expirationCount;
+
+    /** Creates an empty cache.
+     *
+     * @param maxEntries Maximum number of results kept.
+     * @param maxBytes Maximum approximate size, in bytes, of the words and definition text kept.
+     * @param timeToLive Time after which a result is no longer used.
+     * @param unit Unit of timeToLive.
+     */
+    public DefinitionCache(int maxEntries, long maxBytes, long timeToLive, TimeUnit unit) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.timeToLive = unit.toNanos(timeToLive);
+    }
+
+    /** Returns the cached definitions of a word in a database, if available.
+     *
+     * @param word The word whose definitions were requested.
+     * @param database The database used for the request, which may be '*' or '!'.
+     * @return The definitions, or null if this lookup is not cached.
+     */
+    public synchronized Collection<Definition> get(String word, Database database) {
+        long now = System.nanoTime();
+        String name = database.getName();
+
+        Entry entry = lookup(new Key(word, name), now);
+        if (entry != null) {
+            hitCount++;
+            return entry.definitions;
+        }
+
+        if (!name.equals(ALL_DATABASES)) {
+            Entry all = lookup(new Key(word, ALL_DATABASES), now);
+            if (all != null) {
+                hitCount++;
+                return name.equals(FIRST_DATABASE) ? firstDatabase(all.definitions) : filter(all.definitions, name);
+            }
+        }
+
+        missCount++;
+        return null;
+    }
+
+    /** Stores the result of a lookup, evicting the least recently used results if the cache is full.
+     *
+     * @param word The word whose definitions were requested.
+     * @param database The database used for the request, which may be '*' or '!'.
+     * @param definitions The definitions returned by the server.
+     */
+    public synchronized void put(String word, Database database, Collection<Definition> definitions) {
+        Entry entry = new Entry(Collections.unmodifiableList(new ArrayList<>(definitions)),
+                sizeOf(word, definitions), System.nanoTime() + timeToLive);
+        if (entry.size > maxBytes)
+            return;
+
+        Entry previous = entries.put(new Key(word, database.getName()), entry);
+        if (previous != null)
+            bytes -= previous.size;
+        bytes += entry.size;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            Entry evicted = eldest.next();
+            eldest.remove();
+            bytes -= evicted.size;
+            evictionCount++;
+        }
+    }
+
+    /** Lists the definitions of every result that has not expired, without counting them as hits. A definition that
+     * is part of several results, such as those for '*' and for its own database, is only listed once.
+     *
+     * @return The definitions, most recently used result last.
+     */
+    public synchronized List<Definition> getDefinitions() {
+        long now = System.nanoTime();
+        Set<String> seen = new HashSet<>();
+        List<Definition> list = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (now - entry.expiresAt > 0)
+                continue;
+            for (Definition definition : entry.definitions) {
+                if (seen.add(definition.getWord() + '\u0000' + definition.getDatabase().getName() + '\u0000'
+                        + definition.getDefinition()))
+                    list.add(definition);
+            }
+        }
+        return list;
+    }
+
+    /** Removes every result from the cache. Counters are not reset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long getExpirationCount() {
+        return expirationCount;
+    }
+
+    private Entry lookup(Key key, long now) {
+        Entry entry = entries.get(key);
+        if (entry != null && now - entry.expiresAt > 0) {
+            entries.remove(key);
+            bytes -= entry.size;
+            expirationCount++;
+            return null;
+        }
+        return entry;
+    }
+
+    private static Collection<Definition> filter(Collection<Definition> definitions, String name) {
+        List<Definition> result = new ArrayList<>();
+        for (Definition definition : definitions)
+            if (definition.getDatabase().getName().equals(name))
+                result.add(definition);
+        return Collections.unmodifiableList(result);
+    }
+
+    private static Collection<Definition> firstDatabase(Collection<Definition> definitions) {
+        if (definitions.isEmpty())
+            return definitions;
+        return filter(definitions, definitions.iterator().next().getDatabase().getName());
+    }
+
+    // Strings are counted as two bytes per character, plus a fixed overhead per object
+    private static long sizeOf(String word, Collection<Definition> definitions) {
+        long size = 64 + 2L * word.length();
+        for (Definition definition : definitions) {
+            size += 64;
+            if (definition.getDefinition() != null)
+                size += 2L * definition.getDefinition().length();
+        }
+        return size;
+    }
+
+    private static class Key {
+        private final String word;
+        private final String database;
+
+        private Key(String word, String database) {
+            this.word = word;
+            this.database = database;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return word.equals(key.word) && database.equals(key.database);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * word.hashCode() + database.hashCode();
+        }
+    }
+
+    private static class Entry {
+        private final Collection<Definition> definitions;
+        private final long size;
+        private final long expiresAt;
+
+        private Entry(Collection<Definition> definitions, long size, long expiresAt) {
+            this.definitions = definitions;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
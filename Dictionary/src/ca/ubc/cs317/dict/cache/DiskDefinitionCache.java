@@ -0,0 +1,646 @@
+package ca.ubc.cs317.dict.cache;
+
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent cache of DEFINE results, kept in a directory so that it survives restarts. Results are appended to a
+ * data file, and a hash index mapped in memory maps each word and database to the offset of its latest record, so a
+ * lookup costs one probe in the mapped index and one read from the data file, both usually served from the page cache.
+ *
+ * Every record carries a CRC and its own key, and the index records how much of the data file it covers, so a crash
+ * at any point leaves at worst a few recent results missing: records beyond that point are dropped when the cache is
+ * opened, and an index that doesn't belong to the data file is rebuilt by scanning it. When the data file grows past
+ * its size cap, it is compacted into new files that keep only the most recently used results, which then replace the
+ * old ones with atomic renames.
+ *
+ * The directory is locked while the cache is open, so a second process using the same directory fails to open it
+ * instead of corrupting the files. Results older than a maximum age are treated as missing, so that they are looked
+ * up again and replaced, since a server's databases may be updated.
+ */
+public class DiskDefinitionCache implements Closeable {
+
+    public static final long DEFAULT_MAX_AGE = TimeUnit.DAYS.toMillis(30);
+
+    private static final int DATA_MAGIC = 0x44494344;   // "DICD"
+    private static final int INDEX_MAGIC = 0x44494349;  // "DICI"
+    private static final int VERSION = 2;
+
+    private static final int DATA_HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    // Index header: magic, version, file id, slot count, used slots, data length, access clock
+    private static final int INDEX_HEADER_SIZE = 48;
+    private static final int FILE_ID = 8, SLOT_COUNT = 16, USED = 20, DATA_LENGTH = 24, CLOCK = 32;
+
+    // Index slot: key hash (0 when empty), record offset, record length, last access
+    private static final int SLOT_SIZE = 32;
+    private static final int HASH = 0, OFFSET = 8, LENGTH = 16, LAST_ACCESS = 24;
+
+    private static final int INITIAL_SLOTS = 1024;
+    private static final double MAX_LOAD = 0.6;
+    private static final double COMPACTED_FRACTION = 0.75;
+
+    // Lock files held by this process. Closing any channel on a locked file may release the lock, so a lock file is
+    // not opened again while it is held.
+    private static final Set<Path> LOCKED = Collections.synchronizedSet(new HashSet<Path>());
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final long maxBytes;
+    private final long maxAge;
+    private final Path lockPath;
+    private final FileChannel lockChannel;
+
+    private FileChannel data;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int slotCount;
+
+    /** Opens the cache stored in a directory, creating it if needed, keeping results for the default maximum age.
+     *
+     * @param directory The directory holding the cache files.
+     * @param maxBytes Size of the data file above which it is compacted.
+     * @throws IOException If the files can't be created or read, or another process is using the cache.
+     */
+    public DiskDefinitionCache(Path directory, long maxBytes) throws IOException {
+        this(directory, maxBytes, DEFAULT_MAX_AGE, TimeUnit.MILLISECONDS);
+    }
+
+    /** Opens the cache stored in a directory, creating it if needed.
+     *
+     * @param directory The directory holding the cache files.
+     * @param maxBytes Size of the data file above which it is compacted.
+     * @param maxAge Time after which a result is no longer returned.
+     * @param unit The unit of maxAge.
+     * @throws IOException If the files can't be created or read, or another process is using the cache.
+     */
+    public DiskDefinitionCache(Path directory, long maxBytes, long maxAge, TimeUnit unit) throws IOException {
+        Files.createDirectories(directory);
+        this.dataPath = directory.resolve("definitions.dat");
+        this.indexPath = directory.resolve("definitions.idx");
+        this.maxBytes = maxBytes;
+        this.maxAge = unit.toMillis(maxAge);
+        lockPath = directory.resolve("lock").toAbsolutePath().normalize();
+        lockChannel = lock(lockPath);
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            unlock();
+            throw e;
+        }
+    }
+
+    /** Returns the cached definitions of a word in a database, if available.
+     *
+     * @param word The word whose definitions were requested.
+     * @param database The database used for the request.
+     * @return The definitions, or null if this lookup is not cached.
+     * @throws IOException If the cache files can't be read.
+     */
+    public synchronized Collection<Definition> get(String word, Database database) throws IOException {
+        boolean interrupted = Thread.interrupted();
+        try {
+            return lookup(word, database);
+        } catch (ClosedByInterruptException e) {
+            interrupted = true;
+            Thread.interrupted();
+            reopen();
+            throw e;
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Stores the result of a lookup, replacing any earlier result for the same word and database.
+     *
+     * @param word The word whose definitions were requested.
+     * @param database The database used for the request.
+     * @param definitions The definitions returned by the server.
+     * @throws IOException If the cache files can't be written.
+     */
+    public synchronized void put(String word, Database database, Collection<Definition> definitions) throws IOException {
+        boolean interrupted = Thread.interrupted();
+        try {
+            store(word, database, definitions);
+        } catch (ClosedByInterruptException e) {
+            interrupted = true;
+            Thread.interrupted();
+            reopen();
+            throw e;
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Rewrites the cache files, dropping results that were replaced by newer ones.
+     *
+     * @throws IOException If the cache files can't be rewritten.
+     */
+    public synchronized void compact() throws IOException {
+        boolean interrupted = Thread.interrupted();
+        try {
+            compact(Long.MAX_VALUE);
+        } catch (ClosedByInterruptException e) {
+            interrupted = true;
+            Thread.interrupted();
+            reopen();
+            throw e;
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private Collection<Definition> lookup(String word, Database database) throws IOException {
+        Record record = find(word, database.getName());
+        // An expired result is replaced once it has been looked up again
+        if (record == null || System.currentTimeMillis() - record.written > maxAge)
+            return null;
+        index.putLong(record.position + LAST_ACCESS, tick());
+        return record.definitions;
+    }
+
+    // Returns the latest record for a word and database, with the position of its slot, or null if there is none
+    private Record find(String word, String database) throws IOException {
+        long hash = hash(word, database);
+        int slot = find(hash);
+        while (true) {
+            int position = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+            if (index.getLong(position + HASH) == 0)
+                return null;
+            if (index.getLong(position + HASH) == hash) {
+                Record record = read(index.getLong(position + OFFSET), index.getInt(position + LENGTH));
+                if (record != null && record.word.equals(word) && record.database.equals(database)) {
+                    record.position = position;
+                    return record;
+                }
+            }
+            slot = (slot + 1) % slotCount;
+        }
+    }
+
+    private void store(String word, Database database, Collection<Definition> definitions) throws IOException {
+        byte[] payload = encode(word, database.getName(), definitions);
+        long offset = data.size();
+        data.write(recordBuffer(payload), offset);
+        int length = RECORD_HEADER_SIZE + payload.length;
+
+        long hash = hash(word, database);
+        int slot = find(hash);
+        int position;
+        while (true) {
+            position = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+            long existing = index.getLong(position + HASH);
+            if (existing == 0) {
+                index.putInt(USED, index.getInt(USED) + 1);
+                break;
+            }
+            if (existing == hash) {
+                Record record = read(index.getLong(position + OFFSET), index.getInt(position + LENGTH));
+                if (record == null || (record.word.equals(word) && record.database.equals(database.getName())))
+                    break;
+            }
+            slot = (slot + 1) % slotCount;
+        }
+        index.putLong(position + OFFSET, offset);
+        index.putInt(position + LENGTH, length);
+        index.putLong(position + LAST_ACCESS, tick());
+        index.putLong(position + HASH, hash);
+        index.putLong(DATA_LENGTH, offset + length);
+
+        if (offset + length > maxBytes)
+            compact((long) (maxBytes * COMPACTED_FRACTION));
+        else if (index.getInt(USED) > slotCount * MAX_LOAD)
+            rewrite(Long.MAX_VALUE, slotCount * 2);
+    }
+
+    /** Lists every definition stored, for instance to build a DefinitionIndex over their text. A definition that is
+     * part of several results, such as those for '*' and for its own database, is only listed once. Every result is
+     * read once, including expired ones, and the list is a copy that later changes to the cache don't affect.
+     *
+     * @return The definitions stored.
+     * @throws IOException If the cache files can't be read.
+     */
+    public synchronized List<Definition> getDefinitions() throws IOException {
+        boolean interrupted = Thread.interrupted();
+        try {
+            return readDefinitions();
+        } catch (ClosedByInterruptException e) {
+            interrupted = true;
+            Thread.interrupted();
+            reopen();
+            throw e;
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Definition> readDefinitions() throws IOException {
+        List<Definition> list = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (long[] entry : entries()) {
+            Record record = read(entry[1], (int) entry[2]);
+            if (record == null)
+                continue;
+            for (Definition definition : record.definitions) {
+                if (definition.getDefinition() != null && seen.add(key(definition)))
+                    list.add(definition);
+            }
+        }
+        return list;
+    }
+
+    /** Returns the number of results stored.
+     *
+     * @return The number of distinct words and databases in the cache.
+     */
+    public synchronized int size() {
+        return index.getInt(USED);
+    }
+
+    /** Returns the size of the data file, including results that were replaced but not yet compacted away.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized long getDataSize() {
+        return index.getLong(DATA_LENGTH);
+    }
+
+    /** Writes the index to disk, closes the files and unlocks the directory.
+     *
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            index.force();
+            indexChannel.close();
+            data.close();
+        } catch (IOException e) {
+        }
+        unlock();
+    }
+
+    // Locks the directory, failing if another process, or another cache of this process, has it locked
+    private static FileChannel lock(Path path) throws IOException {
+        if (!LOCKED.add(path))
+            throw new IOException("Cache directory in use: " + path.getParent());
+        FileChannel channel = null;
+        boolean locked = false;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            locked = channel.tryLock() != null;
+        } finally {
+            if (!locked) {
+                if (channel != null)
+                    channel.close();
+                LOCKED.remove(path);
+            }
+        }
+        if (!locked)
+            throw new IOException("Cache directory in use by another process: " + path.getParent());
+        return channel;
+    }
+
+    private void unlock() {
+        if (!lockChannel.isOpen())
+            return;
+        try {
+            lockChannel.close();
+        } catch (IOException e) {
+        }
+        LOCKED.remove(lockPath);
+    }
+
+    // A channel is closed for good when the thread using it is interrupted, which must not disable the cache
+    private void reopen() throws IOException {
+        try {
+            indexChannel.close();
+            data.close();
+        } catch (IOException e) {
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        data = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_SIZE);
+        long fileId;
+        if (data.read(header, 0) == DATA_HEADER_SIZE && header.getInt(0) == DATA_MAGIC && header.getInt(4) == VERSION) {
+            fileId = header.getLong(8);
+        } else {
+            // New or unreadable data file, start over
+            fileId = new Random().nextLong();
+            data.truncate(0);
+            writeDataHeader(data, fileId);
+        }
+
+        if (!openIndex(fileId)) {
+            indexChannel.close();
+            index = null;
+            rebuildIndex(fileId);
+        }
+    }
+
+    private boolean openIndex(long fileId) throws IOException {
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = indexChannel.size();
+        if (size < INDEX_HEADER_SIZE)
+            return false;
+
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        slotCount = index.getInt(SLOT_COUNT);
+        long dataLength = index.getLong(DATA_LENGTH);
+        if (index.getInt(0) != INDEX_MAGIC || index.getInt(4) != VERSION || index.getLong(FILE_ID) != fileId
+                || slotCount <= 0 || size != INDEX_HEADER_SIZE + (long) slotCount * SLOT_SIZE
+                || dataLength < DATA_HEADER_SIZE || dataLength > data.size())
+            return false;
+
+        // Anything written after the index was last updated is not referenced by it
+        data.truncate(dataLength);
+        return true;
+    }
+
+    // Scans the data file and indexes every valid record, stopping at the first damaged one
+    private void rebuildIndex(long fileId) throws IOException {
+        Map<String, long[]> records = new LinkedHashMap<>();
+        long offset = DATA_HEADER_SIZE;
+        long end = data.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (offset + RECORD_HEADER_SIZE <= end) {
+            header.clear();
+            data.read(header, offset);
+            int length = RECORD_HEADER_SIZE + header.getInt(0);
+            Record record = length >= RECORD_HEADER_SIZE && offset + length <= end ? read(offset, length) : null;
+            if (record == null)
+                break;
+            // A later record for the same word and database replaces the earlier one
+            String key = record.word + '\u0000' + record.database;
+            records.remove(key);
+            records.put(key, new long[]{hash(record.word, record.database), offset, length});
+            offset += length;
+        }
+        data.truncate(offset);
+
+        int slots = INITIAL_SLOTS;
+        while (slots * MAX_LOAD < records.size())
+            slots *= 2;
+        Files.deleteIfExists(indexPath);
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        createIndex(indexChannel, fileId, slots, offset);
+        for (long[] record : records.values())
+            insert(record[0], record[1], (int) record[2], tick());
+    }
+
+    private void compact(long targetBytes) throws IOException {
+        rewrite(targetBytes, Math.max(INITIAL_SLOTS, slotCount));
+    }
+
+    /** Copies the most recently used records, up to a total size, into new data and index files, then replaces the
+     * current files with them.
+     */
+    private void rewrite(long targetBytes, int newSlotCount) throws IOException {
+        List<long[]> live = entries();
+        Collections.sort(live, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return Long.compare(b[3], a[3]);
+            }
+        });
+
+        Path dataTemp = dataPath.resolveSibling(dataPath.getFileName() + ".tmp");
+        Path indexTemp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        long fileId = new Random().nextLong();
+        long clock = index.getLong(CLOCK);
+        MappedByteBuffer oldIndex = index;
+        int oldSlotCount = slotCount;
+
+        try (FileChannel newData = FileChannel.open(dataTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel newIndex = FileChannel.open(indexTemp, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            writeDataHeader(newData, fileId);
+            while (newSlotCount * MAX_LOAD < live.size())
+                newSlotCount *= 2;
+            createIndex(newIndex, fileId, newSlotCount, DATA_HEADER_SIZE);
+            index.putLong(CLOCK, clock);
+
+            long offset = DATA_HEADER_SIZE;
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            for (long[] entry : live) {
+                int length = (int) entry[2];
+                if (offset + length > targetBytes && offset > DATA_HEADER_SIZE)
+                    break;
+                if (buffer.capacity() < length)
+                    buffer = ByteBuffer.allocate(length);
+                buffer.clear().limit(length);
+                while (buffer.hasRemaining())
+                    if (data.read(buffer, entry[1] + buffer.position()) < 0)
+                        throw new EOFException();
+                buffer.flip();
+                newData.write(buffer, offset);
+                insert(entry[0], offset, length, entry[3]);
+                offset += length;
+            }
+            index.putLong(DATA_LENGTH, offset);
+            index.force();
+            newData.force(true);
+        } catch (IOException | RuntimeException e) {
+            index = oldIndex;
+            slotCount = oldSlotCount;
+            Files.deleteIfExists(dataTemp);
+            Files.deleteIfExists(indexTemp);
+            throw e;
+        }
+
+        // If the process dies between the two moves, the index no longer matches the data file and is rebuilt
+        indexChannel.close();
+        data.close();
+        move(dataTemp, dataPath);
+        move(indexTemp, indexPath);
+        open();
+    }
+
+    // Returns {hash, offset, length, last access} for every used slot
+    private List<long[]> entries() {
+        List<long[]> entries = new ArrayList<>();
+        for (int slot = 0; slot < slotCount; slot++) {
+            int position = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+            long hash = index.getLong(position + HASH);
+            if (hash != 0)
+                entries.add(new long[]{hash, index.getLong(position + OFFSET), index.getInt(position + LENGTH),
+                        index.getLong(position + LAST_ACCESS)});
+        }
+        return entries;
+    }
+
+    private void createIndex(FileChannel channel, long fileId, int slots, long dataLength) throws IOException {
+        long size = INDEX_HEADER_SIZE + (long) slots * SLOT_SIZE;
+        channel.write(ByteBuffer.allocate(1), size - 1);
+        index = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        slotCount = slots;
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, VERSION);
+        index.putLong(FILE_ID, fileId);
+        index.putInt(SLOT_COUNT, slots);
+        index.putInt(USED, 0);
+        index.putLong(DATA_LENGTH, dataLength);
+        index.putLong(CLOCK, 0);
+    }
+
+    private void insert(long hash, long offset, int length, long lastAccess) {
+        int slot = find(hash);
+        while (index.getLong(INDEX_HEADER_SIZE + slot * SLOT_SIZE + HASH) != 0)
+            slot = (slot + 1) % slotCount;
+        int position = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+        index.putLong(position + OFFSET, offset);
+        index.putInt(position + LENGTH, length);
+        index.putLong(position + LAST_ACCESS, lastAccess);
+        index.putLong(position + HASH, hash);
+        index.putInt(USED, index.getInt(USED) + 1);
+    }
+
+    private int find(long hash) {
+        return (int) ((hash & Long.MAX_VALUE) % slotCount);
+    }
+
+    private long tick() {
+        long clock = index.getLong(CLOCK) + 1;
+        index.putLong(CLOCK, clock);
+        return clock;
+    }
+
+    private Record read(long offset, int length) throws IOException {
+        if (length < RECORD_HEADER_SIZE || offset + length > data.size())
+            return null;
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+            if (data.read(buffer, offset + buffer.position()) < 0)
+                return null;
+
+        int payloadLength = buffer.getInt(0);
+        if (payloadLength != length - RECORD_HEADER_SIZE)
+            return null;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), RECORD_HEADER_SIZE, payloadLength);
+        if ((int) crc.getValue() != buffer.getInt(4))
+            return null;
+
+        try {
+            return decode(new DataInputStream(new ByteArrayInputStream(buffer.array(), RECORD_HEADER_SIZE, payloadLength)));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer recordBuffer(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] encode(String word, String database, Collection<Definition> definitions) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(System.currentTimeMillis());
+        out.writeUTF(word);
+        out.writeUTF(database);
+        out.writeInt(definitions.size());
+        for (Definition definition : definitions) {
+            out.writeUTF(definition.getDatabase().getName());
+            out.writeUTF(definition.getDatabase().getDescription());
+            byte[] text = definition.getDefinition() == null ? null
+                    : definition.getDefinition().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(text == null ? -1 : text.length);
+            if (text != null)
+                out.write(text);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Record decode(DataInputStream in) throws IOException {
+        long written = in.readLong();
+        String word = in.readUTF();
+        String database = in.readUTF();
+        int count = in.readInt();
+        List<Definition> definitions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Definition definition = new Definition(word, new Database(in.readUTF(), in.readUTF()));
+            int length = in.readInt();
+            if (length >= 0) {
+                byte[] text = new byte[length];
+                in.readFully(text);
+                definition.setDefinition(new String(text, StandardCharsets.UTF_8));
+            }
+            definitions.add(definition);
+        }
+        return new Record(written, word, database, definitions);
+    }
+
+    private static void writeDataHeader(FileChannel channel, long fileId) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_SIZE);
+        header.putInt(DATA_MAGIC).putInt(VERSION).putLong(fileId);
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Identifies a definition by its word, database and text
+    private static String key(Definition definition) {
+        return definition.getWord() + '\u0000' + definition.getDatabase().getName() + '\u0000'
+                + definition.getDefinition();
+    }
+
+    private static long hash(String word, Database database) {
+        return hash(word, database.getName());
+    }
+
+    private static long hash(String word, String database) {
+        long hash = BloomFilter.hash(word + '\u0000' + database);
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static class Record {
+        private final long written;
+        private final String word;
+        private final String database;
+        private final Collection<Definition> definitions;
+        private int position;
+
+        private Record(long written, String word, String database, Collection<Definition> definitions) {
+            this.written = written;
+            this.word = word;
+            this.database = database;
+            this.definitions = definitions;
+        }
+    }
+}
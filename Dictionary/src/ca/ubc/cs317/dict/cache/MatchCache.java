@@ -0,0 +1,206 @@
+package ca.ubc.cs317.dict.cache;
+
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.MatchingStrategy;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread-safe, least-recently-used cache of MATCH results for the prefix and exact strategies. Since every word that
+ * starts with "absol" also starts with "abs", a cached prefix result is a superset of the result for any longer
+ * prefix, and of the exact result for any word with that prefix. Such lookups are answered by filtering the superset
+ * locally, as long as the superset was not possibly truncated by the server.
+ *
+ * Words are compared the way dictd does by default: case is ignored, and characters other than letters, digits and
+ * spaces are skipped.
+ */
+public class MatchCache {
+
+    public static final String PREFIX = "prefix";
+    public static final String EXACT = "exact";
+
+    private static final String FIRST_DATABASE = "!";
+
+    private final int maxEntries;
+    private final int truncationLimit;
+    private final long timeToLive;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hitCount;
+    private long filteredHitCount;
+    private long missCount;
+
+    /** Creates an empty cache.
+     *
+     * @param maxEntries Maximum number of results kept.
+     * @param truncationLimit Number of matches at or above which a result is assumed to have been truncated by the
+     *                        server, and is therefore not used to answer longer prefixes.
+     * @param timeToLive Time after which a result is no longer used.
+     * @param unit Unit of timeToLive.
+     */
+    public MatchCache(int maxEntries, int truncationLimit, long timeToLive, TimeUnit unit) {
+        this.maxEntries = maxEntries;
+        this.truncationLimit = truncationLimit;
+        this.timeToLive = unit.toNanos(timeToLive);
+    }
+
+    /** Checks whether results for a strategy can be cached at all.
+     *
+     * @param strategy The matching strategy.
+     * @return true for the prefix and exact strategies.
+     */
+    public static boolean supports(MatchingStrategy strategy) {
+        return strategy.getName().equals(PREFIX) || strategy.getName().equals(EXACT);
+    }
+
+    /** Returns the matches for a word, either from the same lookup or by filtering a cached prefix result.
+     *
+     * @param word The word pattern that was requested.
+     * @param strategy The strategy used for the request.
+     * @param database The database used for the request, which may be '*' or '!'.
+     * @return The matches, or null if they can't be determined from the cache.
+     */
+    public synchronized Set<String> get(String word, MatchingStrategy strategy, Database database) {
+        if (!supports(strategy))
+            return null;
+
+        long now = System.nanoTime();
+        String normalized = normalize(word);
+        boolean prefix = strategy.getName().equals(PREFIX);
+
+        Entry entry = lookup(new Key(strategy.getName(), database.getName(), normalized), now);
+        if (entry != null) {
+            hitCount++;
+            return new LinkedHashSet<>(entry.matches);
+        }
+
+        for (int length = normalized.length() - (prefix ? 1 : 0); length >= 0; length--) {
+            entry = lookup(new Key(PREFIX, database.getName(), normalized.substring(0, length)), now);
+            if (entry == null || entry.truncated)
+                continue;
+
+            Set<String> matches = new LinkedHashSet<>();
+            for (String match : entry.matches) {
+                String candidate = normalize(match);
+                if (prefix ? candidate.startsWith(normalized) : candidate.equals(normalized))
+                    matches.add(match);
+            }
+
+            // For '!' the superset comes from the first database matching the shorter prefix; if none of its words
+            // match, a later database might still have some
+            if (matches.isEmpty() && database.getName().equals(FIRST_DATABASE))
+                break;
+
+            filteredHitCount++;
+            return matches;
+        }
+
+        missCount++;
+        return null;
+    }
+
+    /** Stores the result of a lookup, evicting the least recently used results if the cache is full.
+     *
+     * @param word The word pattern that was requested.
+     * @param strategy The strategy used for the request.
+     * @param database The database used for the request, which may be '*' or '!'.
+     * @param matches The matches returned by the server.
+     */
+    public synchronized void put(String word, MatchingStrategy strategy, Database database, Set<String> matches) {
+        if (!supports(strategy))
+            return;
+
+        entries.put(new Key(strategy.getName(), database.getName(), normalize(word)),
+                new Entry(new ArrayList<>(matches), matches.size() >= truncationLimit, System.nanoTime() + timeToLive));
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /** Removes every result from the cache. Counters are not reset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /** Returns the number of lookups answered by filtering a cached result for a shorter prefix.
+     *
+     * @return The number of filtered hits.
+     */
+    public synchronized long getFilteredHitCount() {
+        return filteredHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private Entry lookup(Key key, long now) {
+        Entry entry = entries.get(key);
+        if (entry != null && now - entry.expiresAt > 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    static String normalize(String word) {
+        StringBuilder builder = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == ' ')
+                builder.append(Character.toLowerCase(c));
+        }
+        return builder.toString();
+    }
+
+    private static class Key {
+        private final String strategy;
+        private final String database;
+        private final String word;
+
+        private Key(String strategy, String database, String word) {
+            this.strategy = strategy;
+            this.database = database;
+            this.word = word;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return strategy.equals(key.strategy) && database.equals(key.database) && word.equals(key.word);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * strategy.hashCode() + database.hashCode()) * 31 + word.hashCode();
+        }
+    }
+
+    private static class Entry {
+        private final List<String> matches;
+        private final boolean truncated;
+        private final long expiresAt;
+
+        private Entry(List<String> matches, boolean truncated, long expiresAt) {
+            this.matches = matches;
+            this.truncated = truncated;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ca.ubc.cs317.dict.cache;
+
+import ca.ubc.cs317.dict.model.Database;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers lookups the server answered with 552 (no match), using one pair of Bloom filters per database and strategy
+ * so that each remembered miss costs only a few bits. Misses are recorded in a current filter; every half time to live,
+ * or earlier if it fills up, the current filter becomes the previous one and the old previous one is dropped, so a miss
+ * is remembered for at most the time to live. A lookup checks up to four filters (both generations, for its own
+ * database and for '*'), so each filter is sized for a quarter of the allowed false-positive rate.
+ *
+ * A miss in the special database '*' or '!' means no database has the word, so it also answers every regular
+ * database.
+ */
+public class NegativeCache {
+
+    /** Strategy name used for DEFINE lookups. */
+    public static final String DEFINE = "DEFINE";
+
+    private static final String ALL_DATABASES = "*";
+    private static final String FIRST_DATABASE = "!";
+
+    private final int expectedInsertions;
+    private final double falsePositiveRate;
+    private final long rotationInterval;
+
+    private final Map<String, Generations> filters = new HashMap<>();
+
+    private long hitCount;
+    private long missCount;
+
+    /** Creates an empty cache.
+     *
+     * @param expectedInsertions Number of misses each filter is sized for, per database and strategy.
+     * @param falsePositiveRate Maximum probability of reporting a miss for a word that was never recorded.
+     * @param timeToLive Time after which a recorded miss is forgotten.
+     * @param unit Unit of timeToLive.
+     */
+    public NegativeCache(int expectedInsertions, double falsePositiveRate, long timeToLive, TimeUnit unit) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate / 4;
+        this.rotationInterval = unit.toNanos(timeToLive) / 2;
+    }
+
+    /** Checks whether a lookup is known to have no result.
+     *
+     * @param word The word pattern of the lookup.
+     * @param strategy The name of the matching strategy, or DEFINE for definitions.
+     * @param database The database of the lookup.
+     * @return true if the lookup (probably) returned no result recently.
+     */
+    public synchronized boolean isKnownMiss(String word, String strategy, Database database) {
+        long now = System.nanoTime();
+        boolean miss = contains(key(strategy, database.getName()), word, now);
+        if (!miss && !isSpecial(database.getName()))
+            miss = contains(key(strategy, ALL_DATABASES), word, now);
+
+        if (miss)
+            hitCount++;
+        else
+            missCount++;
+        return miss;
+    }
+
+    /** Records that a lookup returned no result.
+     *
+     * @param word The word pattern of the lookup.
+     * @param strategy The name of the matching strategy, or DEFINE for definitions.
+     * @param database The database of the lookup.
+     */
+    public synchronized void recordMiss(String word, String strategy, Database database) {
+        String key = key(strategy, database.getName());
+        Generations generations = filters.get(key);
+        if (generations == null) {
+            generations = new Generations(System.nanoTime());
+            filters.put(key, generations);
+        }
+        generations.rotate(System.nanoTime());
+        generations.current.add(word);
+    }
+
+    /** Forgets every recorded miss. Counters are not reset.
+     */
+    public synchronized void clear() {
+        filters.clear();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private boolean contains(String key, String word, long now) {
+        Generations generations = filters.get(key);
+        if (generations == null)
+            return false;
+        generations.rotate(now);
+        return generations.current.mightContain(word)
+                || (generations.previous != null && generations.previous.mightContain(word));
+    }
+
+    // '*' and '!' fail for exactly the same words, so they share their filters
+    private static String key(String strategy, String database) {
+        return strategy + ' ' + (isSpecial(database) ? ALL_DATABASES : database);
+    }
+
+    private static boolean isSpecial(String database) {
+        return database.equals(ALL_DATABASES) || database.equals(FIRST_DATABASE);
+    }
+
+    private class Generations {
+        private BloomFilter current = new BloomFilter(expectedInsertions, falsePositiveRate);
+        private BloomFilter previous;
+        private long rotatedAt;
+
+        private Generations(long now) {
+            this.rotatedAt = now;
+        }
+
+        private void rotate(long now) {
+            if (now - rotatedAt >= 2 * rotationInterval) {
+                previous = null;
+                current = new BloomFilter(expectedInsertions, falsePositiveRate);
+                rotatedAt = now;
+            } else if (now - rotatedAt >= rotationInterval || current.size() >= expectedInsertions) {
+                previous = current;
+                current = new BloomFilter(expectedInsertions, falsePositiveRate);
+                rotatedAt = now;
+            }
+        }
+    }
+}
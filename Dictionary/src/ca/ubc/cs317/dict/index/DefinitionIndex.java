@@ -0,0 +1,481 @@
+package ca.ubc.cs317.dict.index;
+
+import ca.ubc.cs317.dict.model.Definition;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * An immutable inverted index over the text of a collection of definitions, answering full-text searches ranked with
+ * BM25. Terms are runs of letters and digits, ignoring case. The posting list of each term holds the definitions
+ * containing it, in increasing order, and how many times it appears in each; all the lists are stored back to back in
+ * one byte array, as variable-length integers (seven bits per byte, the high bit set on all but the last byte), with
+ * each definition number replaced by its difference with the previous one. Frequent terms, having the longest lists,
+ * thus take about two bytes per definition.
+ *
+ * Query terms missing from the index, usually misspelled, are replaced by the indexed terms sharing the most trigrams
+ * with them, found with a second, smaller inverted index from each trigram to the terms containing it. Their scores
+ * are weighted by their similarity with the query term.
+ *
+ * Definitions are split into chunks indexed on all available cores, and the posting lists of the chunks are then
+ * merged in a single pass. The text of the definitions isn't kept: the definitions found by a search are read again
+ * from their source.
+ */
+public class DefinitionIndex {
+
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 32;
+    private static final int CHUNK_SIZE = 4096;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final float MIN_SIMILARITY = 0.5f;
+    private static final int MAX_EXPANSIONS = 8;
+    private static final char BOUNDARY = ' ';
+
+    private final DefinitionSource source;
+
+    private final char[] terms;
+    private final int[] termOffsets;
+    private final int[] documentFrequencies;
+    private final int[] postingOffsets;
+    private final byte[] postings;
+    private final float[] norms;
+
+    private final long[] trigrams;
+    private final int[] trigramStarts;
+    private final int[] trigramTerms;
+
+    private DefinitionIndex(DefinitionSource source, char[] terms, int[] termOffsets, int[] documentFrequencies,
+                            int[] postingOffsets, byte[] postings, float[] norms) {
+        this.source = source;
+        this.terms = terms;
+        this.termOffsets = termOffsets;
+        this.documentFrequencies = documentFrequencies;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+        this.norms = norms;
+
+        // Index the trigrams of each term, padded so that its first and last characters start and end a trigram
+        int count = termOffsets.length - 1;
+        long[] keys = new long[terms.length];
+        int pairs = 0;
+        for (int term = 0; term < count; term++) {
+            for (int i = termOffsets[term]; i < termOffsets[term + 1]; i++)
+                keys[pairs++] = trigram(terms, i, termOffsets[term], termOffsets[term + 1]);
+        }
+        long[] distinct = Arrays.copyOf(keys, pairs);
+        Arrays.parallelSort(distinct);
+        int trigramCount = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1])
+                distinct[trigramCount++] = distinct[i];
+        }
+        trigrams = Arrays.copyOf(distinct, trigramCount);
+
+        // Sorting the number of each trigram next to the term containing it groups the terms by trigram
+        pairs = 0;
+        for (int term = 0; term < count; term++) {
+            for (int i = termOffsets[term]; i < termOffsets[term + 1]; i++)
+                keys[pairs] = (long) Arrays.binarySearch(trigrams, keys[pairs++]) << 32 | term;
+        }
+        Arrays.parallelSort(keys, 0, pairs);
+        trigramStarts = new int[trigramCount + 1];
+        int[] list = new int[pairs];
+        int size = 0;
+        for (int i = 0; i < pairs; i++) {
+            if (i > 0 && keys[i] == keys[i - 1])
+                continue;
+            int trigram = (int) (keys[i] >>> 32);
+            list[size] = (int) keys[i];
+            trigramStarts[trigram + 1] = ++size;
+        }
+        for (int trigram = 1; trigram <= trigramCount; trigram++)
+            trigramStarts[trigram] = Math.max(trigramStarts[trigram], trigramStarts[trigram - 1]);
+        trigramTerms = Arrays.copyOf(list, size);
+    }
+
+    /** Indexes every definition of a source, reading them from all available cores.
+     *
+     * @param source The definitions to be indexed.
+     * @return The index.
+     * @throws IOException If a definition can't be read.
+     */
+    public static DefinitionIndex build(final DefinitionSource source) throws IOException {
+        final int documents = source.size();
+        final int[] lengths = new int[documents];
+        Chunk[] chunks = new Chunk[(documents + CHUNK_SIZE - 1) / CHUNK_SIZE];
+        try {
+            Arrays.parallelSetAll(chunks, new IntFunction<Chunk>() {
+                @Override
+                public Chunk apply(int chunk) {
+                    try {
+                        return new Chunk(source, chunk * CHUNK_SIZE, Math.min(documents, (chunk + 1) * CHUNK_SIZE),
+                                lengths);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // BM25 normalizes term frequencies by the length of each definition relative to the average length
+        long total = 0;
+        for (int length : lengths)
+            total += length;
+        float average = documents == 0 ? 1 : Math.max(1, (float) total / documents);
+        float[] norms = new float[documents];
+        for (int i = 0; i < documents; i++)
+            norms[i] = K1 * (1 - B + B * lengths[i] / average);
+
+        return merge(source, chunks, norms);
+    }
+
+    /** Returns the number of definitions indexed.
+     *
+     * @return The number of definitions.
+     */
+    public int size() {
+        return norms.length;
+    }
+
+    /** Returns the number of distinct terms.
+     *
+     * @return The number of terms found in at least one definition.
+     */
+    public int getTermCount() {
+        return termOffsets.length - 1;
+    }
+
+    /** Returns an estimate of the memory used by this index, not counting object headers.
+     *
+     * @return The number of bytes used by the arrays of this index.
+     */
+    public long getMemoryUsage() {
+        return 2L * terms.length + 4L * termOffsets.length + 4L * documentFrequencies.length
+                + 4L * postingOffsets.length + postings.length + 4L * norms.length
+                + 8L * trigrams.length + 4L * trigramStarts.length + 4L * trigramTerms.length;
+    }
+
+    /** Finds the definitions best matching a query. A definition matches if it contains any of the terms of the
+     * query, or a term similar to one missing from the index, and definitions containing more of the terms, or rarer
+     * ones, rank higher.
+     *
+     * @param query The words to be searched for.
+     * @param limit Maximum number of definitions returned.
+     * @return The definitions found, best match first, read from the source of the index.
+     * @throws IOException If a definition can't be read from the source.
+     */
+    public List<Definition> search(String query, int limit) throws IOException {
+        final float[] scores = new float[norms.length];
+        for (String term : tokenize(query).keySet()) {
+            int id = find(term);
+            if (id >= 0) {
+                score(id, 1, scores);
+            } else {
+                for (Map.Entry<Integer, Float> expansion : expand(term).entrySet())
+                    score(expansion.getKey(), expansion.getValue(), scores);
+            }
+        }
+
+        // Keep the best definitions in a heap whose head is the worst of them
+        Comparator<Integer> byScore = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int result = Float.compare(scores[a], scores[b]);
+                return result != 0 ? result : Integer.compare(b, a);
+            }
+        };
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, 1024) + 1, byScore);
+        for (int document = 0; document < scores.length && limit > 0; document++) {
+            if (scores[document] <= 0)
+                continue;
+            if (best.size() < limit) {
+                best.add(document);
+            } else if (byScore.compare(document, best.peek()) > 0) {
+                best.poll();
+                best.add(document);
+            }
+        }
+
+        List<Integer> documents = new ArrayList<>(best);
+        Collections.sort(documents, Collections.reverseOrder(byScore));
+        List<Definition> list = new ArrayList<>(documents.size());
+        for (int document : documents)
+            list.add(source.get(document));
+        return list;
+    }
+
+    // Adds the BM25 score of a term, times a weight, to the score of each definition containing it
+    private void score(int term, float weight, float[] scores) {
+        int documents = norms.length;
+        int frequency = documentFrequencies[term];
+        float idf = (float) Math.log(1 + (documents - frequency + 0.5) / (frequency + 0.5));
+
+        int[] position = { postingOffsets[term] };
+        int document = -1;
+        for (int i = 0; i < frequency; i++) {
+            document += readVarInt(postings, position);
+            int count = readVarInt(postings, position);
+            scores[document] += weight * idf * count * (K1 + 1) / (count + norms[document]);
+        }
+    }
+
+    // Returns the indexed terms most similar to a term, with their similarity: the Dice coefficient of their trigrams
+    private Map<Integer, Float> expand(String term) {
+        char[] chars = term.toCharArray();
+        Set<Long> keys = new HashSet<>();
+        for (int i = 0; i < chars.length; i++)
+            keys.add(trigram(chars, i, 0, chars.length));
+
+        Map<Integer, int[]> shared = new HashMap<>();
+        for (long key : keys) {
+            int trigram = Arrays.binarySearch(trigrams, key);
+            if (trigram < 0)
+                continue;
+            for (int i = trigramStarts[trigram]; i < trigramStarts[trigram + 1]; i++) {
+                int[] count = shared.get(trigramTerms[i]);
+                if (count == null)
+                    shared.put(trigramTerms[i], new int[] { 1 });
+                else
+                    count[0]++;
+            }
+        }
+
+        final Map<Integer, Float> similarities = new HashMap<>();
+        for (Map.Entry<Integer, int[]> entry : shared.entrySet()) {
+            int length = termOffsets[entry.getKey() + 1] - termOffsets[entry.getKey()];
+            float similarity = 2f * entry.getValue()[0] / (keys.size() + length);
+            if (similarity >= MIN_SIMILARITY)
+                similarities.put(entry.getKey(), similarity);
+        }
+        List<Integer> candidates = new ArrayList<>(similarities.keySet());
+        Collections.sort(candidates, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int result = Float.compare(similarities.get(b), similarities.get(a));
+                return result != 0 ? result : Integer.compare(documentFrequencies[b], documentFrequencies[a]);
+            }
+        });
+
+        Map<Integer, Float> expansions = new LinkedHashMap<>();
+        for (int candidate : candidates.subList(0, Math.min(MAX_EXPANSIONS, candidates.size())))
+            expansions.put(candidate, similarities.get(candidate));
+        return expansions;
+    }
+
+    private int find(String term) {
+        int low = 0;
+        int high = termOffsets.length - 2;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int result = compare(terms, termOffsets[middle], termOffsets[middle + 1], term);
+            if (result < 0)
+                low = middle + 1;
+            else if (result > 0)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -1;
+    }
+
+    private static int compare(char[] text, int start, int end, String term) {
+        int length = Math.min(end - start, term.length());
+        for (int i = 0; i < length; i++) {
+            if (text[start + i] != term.charAt(i))
+                return text[start + i] < term.charAt(i) ? -1 : 1;
+        }
+        return Integer.compare(end - start, term.length());
+    }
+
+    // Packs the three characters starting one before position i of a term into a number, padding the term
+    private static long trigram(char[] text, int i, int start, int end) {
+        char first = i == start ? BOUNDARY : text[i - 1];
+        char last = i + 1 == end ? BOUNDARY : text[i + 1];
+        return (long) first << 32 | (long) text[i] << 16 | last;
+    }
+
+    // Splits a text into terms, counting how many times each of them appears
+    private static Map<String, int[]> tokenize(String text) {
+        Map<String, int[]> counts = new LinkedHashMap<>();
+        tokenize(text, counts);
+        return counts;
+    }
+
+    // Adds the terms of a text to a map of counts, returning the number of terms found
+    private static int tokenize(String text, Map<String, int[]> counts) {
+        if (text == null)
+            return 0;
+        int found = 0;
+        StringBuilder term = new StringBuilder(MAX_TERM_LENGTH);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (term.length() < MAX_TERM_LENGTH)
+                    term.append(Character.toLowerCase(c));
+                continue;
+            }
+            if (term.length() >= MIN_TERM_LENGTH) {
+                String key = term.toString();
+                int[] count = counts.get(key);
+                if (count == null)
+                    counts.put(key, new int[] { 1 });
+                else
+                    count[0]++;
+                found++;
+            }
+            term.setLength(0);
+        }
+        return found;
+    }
+
+    // Merges the posting lists of the chunks, in increasing order of terms then of chunks
+    private static DefinitionIndex merge(DefinitionSource source, Chunk[] chunks, float[] norms) {
+        long bytes = 0;
+        int termLength = 0;
+        int maxTerms = 0;
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.terms.length; i++) {
+                bytes += chunk.lists[i].size[0];
+                termLength += chunk.terms[i].length();
+            }
+            maxTerms += chunk.terms.length;
+        }
+        if (bytes > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Too many postings to be indexed: " + bytes + " bytes");
+
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(chunks.length, 1), new ChunkOrder(chunks));
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (chunks[chunk].terms.length > 0)
+                cursors.add(new int[] { chunk, 0 });
+        }
+
+        // Re-encoding the first definition of a list relative to the end of the previous chunk never makes it longer
+        StringBuilder terms = new StringBuilder(termLength);
+        int[] termOffsets = new int[maxTerms + 1];
+        int[] frequencies = new int[maxTerms];
+        int[] postingOffsets = new int[maxTerms + 1];
+        byte[] postings = new byte[(int) bytes];
+        int[] size = { 0 };
+        int count = 0;
+        String previous = null;
+        int last = -1;
+        while (!cursors.isEmpty()) {
+            int[] cursor = cursors.poll();
+            Chunk chunk = chunks[cursor[0]];
+            String term = chunk.terms[cursor[1]];
+            PostingList list = chunk.lists[cursor[1]];
+            if (!term.equals(previous)) {
+                termOffsets[count] = terms.length();
+                postingOffsets[count] = size[0];
+                terms.append(term);
+                count++;
+                previous = term;
+                last = -1;
+            }
+            frequencies[count - 1] += list.documents;
+
+            int[] position = { 0 };
+            int first = readVarInt(list.bytes, position) - 1;
+            writeVarInt(postings, size, first - last);
+            System.arraycopy(list.bytes, position[0], postings, size[0], list.size[0] - position[0]);
+            size[0] += list.size[0] - position[0];
+            last = list.last;
+
+            if (++cursor[1] < chunk.terms.length)
+                cursors.add(cursor);
+        }
+        termOffsets[count] = terms.length();
+        postingOffsets[count] = size[0];
+
+        char[] text = new char[terms.length()];
+        terms.getChars(0, text.length, text, 0);
+        return new DefinitionIndex(source, text, Arrays.copyOf(termOffsets, count + 1),
+                Arrays.copyOf(frequencies, count), Arrays.copyOf(postingOffsets, count + 1),
+                Arrays.copyOf(postings, size[0]), norms);
+    }
+
+    private static int readVarInt(byte[] bytes, int[] position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[position[0]++];
+            value |= (b & 0x7f) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    private static void writeVarInt(byte[] bytes, int[] size, int value) {
+        while ((value & ~0x7f) != 0) {
+            bytes[size[0]++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        bytes[size[0]++] = (byte) value;
+    }
+
+    // The posting lists of a range of definitions, sorted by term
+    private static class Chunk {
+        private final String[] terms;
+        private final PostingList[] lists;
+
+        private Chunk(DefinitionSource source, int start, int end, int[] lengths) throws IOException {
+            Map<String, PostingList> map = new HashMap<>();
+            Map<String, int[]> counts = new HashMap<>();
+            for (int document = start; document < end; document++) {
+                counts.clear();
+                lengths[document] = tokenize(source.get(document).getDefinition(), counts);
+                for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+                    PostingList list = map.get(entry.getKey());
+                    if (list == null) {
+                        list = new PostingList();
+                        map.put(entry.getKey(), list);
+                    }
+                    list.add(document, entry.getValue()[0]);
+                }
+            }
+            terms = map.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            lists = new PostingList[terms.length];
+            for (int i = 0; i < terms.length; i++)
+                lists[i] = map.get(terms[i]);
+        }
+    }
+
+    // The definitions of a chunk containing a term, the first one stored as its number plus one
+    private static class PostingList {
+        private byte[] bytes = new byte[8];
+        private final int[] size = { 0 };
+        private int documents;
+        private int last = -1;
+
+        private void add(int document, int count) {
+            if (size[0] + 10 > bytes.length)
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            writeVarInt(bytes, size, document - last);
+            writeVarInt(bytes, size, count);
+            documents++;
+            last = document;
+        }
+    }
+
+    // Orders chunk cursors by their current term, then by chunk so that definitions stay in increasing order
+    private static class ChunkOrder implements Comparator<int[]> {
+        private final Chunk[] chunks;
+
+        private ChunkOrder(Chunk[] chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int compare(int[] a, int[] b) {
+            int result = chunks[a[0]].terms[a[1]].compareTo(chunks[b[0]].terms[b[1]]);
+            return result != 0 ? result : Integer.compare(a[0], b[0]);
+        }
+    }
+}
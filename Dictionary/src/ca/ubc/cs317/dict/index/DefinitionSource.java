@@ -0,0 +1,27 @@
+package ca.ubc.cs317.dict.index;
+
+import ca.ubc.cs317.dict.model.Definition;
+
+import java.io.IOException;
+
+/**
+ * A numbered collection of definitions that can be read in any order, such as the entries of a local database. A
+ * DefinitionIndex reads every definition once while being built, from several threads at the same time, and reads
+ * the definitions it returns again when searched, so a source doesn't need to keep them in memory.
+ */
+public interface DefinitionSource {
+
+    /** Returns the number of definitions.
+     *
+     * @return The number of definitions, numbered from 0.
+     */
+    int size();
+
+    /** Reads a definition. This method may be called from several threads at the same time.
+     *
+     * @param index The number of the definition, between 0 and size() - 1.
+     * @return The definition, with its text.
+     * @throws IOException If the definition can't be read.
+     */
+    Definition get(int index) throws IOException;
+}
@@ -0,0 +1,545 @@
+package ca.ubc.cs317.dict.index;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A pattern of the re (POSIX extended), regexp (POSIX basic) or glob syntax, compiled to a java.util.regex.Pattern
+ * ignoring case, like dictd does. Regular expressions match a headword if they match any part of it, while globs must
+ * match the whole headword.
+ *
+ * While translating a pattern, the literal strings any match must contain are collected, as well as the literal
+ * string a match must start with, if the pattern is anchored. Searching the headwords of a database then only tries
+ * the pattern on the headwords starting with that prefix, found with a HeadwordTrie, or on those containing the
+ * longest literal, found with a SuffixIndex, whichever is more selective. Only patterns without any literal are tried
+ * on every headword.
+ *
+ * The regular expression engine backtracks, so some patterns take exponential time on some headwords. Each search
+ * therefore has a budget of characters read by the engine, and fails with a BudgetExceededException, holding the
+ * matches found so far, when it runs out.
+ */
+public class HeadwordPattern {
+
+    public static final long DEFAULT_BUDGET = 20000000;
+
+    private static final String QUANTIFIERS = "*+?";
+
+    private final Pattern pattern;
+    private final boolean whole;
+    private final String prefix;
+    private final List<String> literals;
+
+    private HeadwordPattern(Pattern pattern, boolean whole, String prefix, List<String> literals) {
+        this.pattern = pattern;
+        this.whole = whole;
+        this.prefix = prefix;
+        this.literals = literals;
+    }
+
+    /** Compiles a POSIX extended regular expression, as used by the re strategy.
+     *
+     * @param expression The regular expression.
+     * @return The compiled pattern.
+     * @throws PatternSyntaxException If the expression is not valid.
+     */
+    public static HeadwordPattern extended(String expression) {
+        return new Translator(expression, Translator.EXTENDED).translate();
+    }
+
+    /** Compiles a POSIX basic regular expression, as used by the regexp strategy.
+     *
+     * @param expression The regular expression.
+     * @return The compiled pattern.
+     * @throws PatternSyntaxException If the expression is not valid.
+     */
+    public static HeadwordPattern basic(String expression) {
+        return new Translator(expression, Translator.BASIC).translate();
+    }
+
+    /** Compiles a shell glob, where '*' matches any string, '?' any character, and brackets a set of characters.
+     *
+     * @param glob The glob.
+     * @return The compiled pattern.
+     * @throws PatternSyntaxException If the glob has an unclosed bracket expression.
+     */
+    public static HeadwordPattern glob(String glob) {
+        return new Translator(glob, Translator.GLOB).translate();
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /** Returns the literal string every match starts with.
+     *
+     * @return The prefix, or an empty string if the pattern is not anchored at the start or starts with a metacharacter.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /** Returns the literal strings every match contains.
+     *
+     * @return The literals found outside of groups and alternatives, possibly none.
+     */
+    public List<String> getLiterals() {
+        return literals;
+    }
+
+    /** Tells whether a headword matches the pattern.
+     *
+     * @param headword The headword.
+     * @return true if the pattern matches the headword, or a part of it for a regular expression.
+     */
+    public boolean matches(CharSequence headword) {
+        Matcher matcher = pattern.matcher(headword);
+        return whole ? matcher.matches() : matcher.find();
+    }
+
+    /** Returns the headwords of a database matching the pattern.
+     *
+     * @param headwords The headwords of the database.
+     * @param suffixes The suffix array of the same headwords, or null to only narrow the search with the prefix.
+     * @param limit Maximum number of headwords returned.
+     * @param budget Maximum number of characters read by the regular expression engine before giving up.
+     * @return The first headwords matching the pattern, in the order dictd would list them.
+     * @throws BudgetExceededException If the budget ran out before the search was over.
+     */
+    public List<String> match(final HeadwordTrie headwords, SuffixIndex suffixes, int limit, long budget) {
+        String prefixKey = HeadwordTrie.fold(prefix);
+        String literal = "";
+        for (String candidate : literals) {
+            if (HeadwordTrie.fold(candidate).length() > HeadwordTrie.fold(literal).length())
+                literal = candidate;
+        }
+
+        // Folding both a headword and a string it contains keeps the folded string in the folded headword
+        List<String> candidates;
+        if (!prefixKey.isEmpty() && (suffixes == null || prefixKey.length() >= HeadwordTrie.fold(literal).length()))
+            candidates = headwords.complete(prefix, Integer.MAX_VALUE);
+        else if (suffixes != null && !HeadwordTrie.fold(literal).isEmpty())
+            candidates = suffixes.substring(literal, Integer.MAX_VALUE);
+        else
+            candidates = new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    return headwords.headword(index);
+                }
+
+                @Override
+                public int size() {
+                    return headwords.size();
+                }
+            };
+
+        List<String> list = new ArrayList<>();
+        BudgetedText text = new BudgetedText(budget);
+        Matcher matcher = pattern.matcher(text);
+        try {
+            for (String candidate : candidates) {
+                if (list.size() >= limit)
+                    break;
+                matcher.reset(text.reset(candidate));
+                if (whole ? matcher.matches() : matcher.find())
+                    list.add(candidate);
+            }
+        } catch (BudgetExceededException e) {
+            throw new BudgetExceededException(list);
+        }
+        return list;
+    }
+
+    // A headword seen by the regular expression engine, counting the characters it reads
+    private static class BudgetedText implements CharSequence {
+        private long budget;
+        private String text = "";
+
+        private BudgetedText(long budget) {
+            this.budget = budget;
+        }
+
+        private BudgetedText reset(String text) {
+            // Trying a headword has a cost even if the engine never reads it
+            if (--budget < 0)
+                throw new BudgetExceededException();
+            this.text = text;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--budget < 0)
+                throw new BudgetExceededException();
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    /**
+     * Thrown when a search runs out of budget, so that its result is incomplete. A server, whose regular expression
+     * engine may not backtrack, can still answer it.
+     */
+    public static class BudgetExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> matches;
+
+        // Thrown by BudgetedText, without a stack trace since it is always caught by match
+        private BudgetExceededException() {
+            super(null, null, false, false);
+            matches = Collections.emptyList();
+        }
+
+        private BudgetExceededException(List<String> matches) {
+            super("Pattern search gave up after " + matches.size() + " matches");
+            this.matches = Collections.unmodifiableList(matches);
+        }
+
+        /** Returns the matches found before the budget ran out.
+         *
+         * @return The first matches, in the order dictd would list them.
+         */
+        public List<String> getMatches() {
+            return matches;
+        }
+    }
+
+    // Translates a pattern to the syntax of java.util.regex, collecting its required literals on the way
+    private static class Translator {
+        private static final int EXTENDED = 0, BASIC = 1, GLOB = 2;
+
+        private final String source;
+        private final int syntax;
+        private final StringBuilder regex = new StringBuilder();
+        private int position;
+
+        // Position in regex of the last atom, for quantifiers applied to a quantified atom
+        private int atomStart = -1;
+        private final Deque<Integer> groupStarts = new ArrayDeque<>();
+        private boolean quantified;
+
+        private final StringBuilder run = new StringBuilder();
+        private final List<String> literals = new ArrayList<>();
+        private String prefix = "";
+        private boolean anchored;
+        private boolean lastLiteral;
+        private boolean alternation;
+
+        private Translator(String source, int syntax) {
+            this.source = source;
+            this.syntax = syntax;
+        }
+
+        private HeadwordPattern translate() {
+            if (syntax == GLOB || source.startsWith("^")) {
+                anchored = true;
+                regex.append('^');
+                if (syntax != GLOB)
+                    position++;
+            }
+            while (position < source.length()) {
+                char c = source.charAt(position++);
+                if (syntax == GLOB)
+                    glob(c);
+                else if (c == '\\')
+                    escape();
+                else if (syntax == EXTENDED)
+                    extended(c);
+                else
+                    basic(c);
+            }
+            if (syntax == GLOB)
+                regex.append('$');
+            endRun();
+
+            // Alternatives at the top level don't share any required literal
+            if (alternation) {
+                literals.clear();
+                prefix = "";
+            }
+            Pattern pattern = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            return new HeadwordPattern(pattern, syntax == GLOB, prefix, Collections.unmodifiableList(literals));
+        }
+
+        private void glob(char c) {
+            if (c == '*')
+                atom(".*");
+            else if (c == '?')
+                atom(".");
+            else if (c == '[')
+                atom(bracket());
+            else if (c == '\\' && position < source.length())
+                literal(source.charAt(position++));
+            else
+                literal(c);
+        }
+
+        private void extended(char c) {
+            switch (c) {
+                case '(':
+                    openGroup();
+                    break;
+                case ')':
+                    closeGroup();
+                    break;
+                case '|':
+                    alternative();
+                    break;
+                case '{':
+                    if (position < source.length() && Character.isDigit(source.charAt(position)) && atomStart >= 0)
+                        interval("}");
+                    else
+                        literal(c);
+                    break;
+                case '[':
+                    atom(bracket());
+                    break;
+                case '.':
+                case '^':
+                case '$':
+                    atom(String.valueOf(c));
+                    break;
+                default:
+                    if (QUANTIFIERS.indexOf(c) >= 0 && atomStart >= 0)
+                        quantifier(String.valueOf(c), c != '+');
+                    else
+                        literal(c);
+                    break;
+            }
+        }
+
+        private void basic(char c) {
+            switch (c) {
+                case '*':
+                    if (atomStart >= 0)
+                        quantifier("*", true);
+                    else
+                        literal(c);
+                    break;
+                case '[':
+                    atom(bracket());
+                    break;
+                case '.':
+                    atom(".");
+                    break;
+                case '$':
+                    // Only an anchor at the end of the expression or of a group
+                    if (position == source.length() || source.startsWith("\\)", position)
+                            || source.startsWith("\\|", position))
+                        atom("$");
+                    else
+                        literal(c);
+                    break;
+                default:
+                    literal(c);
+                    break;
+            }
+        }
+
+        private void escape() {
+            if (position == source.length())
+                throw new PatternSyntaxException("Trailing backslash", source, position - 1);
+            char c = source.charAt(position++);
+            if (syntax == BASIC) {
+                switch (c) {
+                    case '(':
+                        openGroup();
+                        return;
+                    case ')':
+                        closeGroup();
+                        return;
+                    case '|':
+                        alternative();
+                        return;
+                    case '{':
+                        if (atomStart >= 0) {
+                            interval("\\}");
+                            return;
+                        }
+                        break;
+                    case '+':
+                    case '?':
+                        if (atomStart >= 0) {
+                            quantifier(String.valueOf(c), c == '?');
+                            return;
+                        }
+                        break;
+                }
+            }
+            if ("wWsSbB".indexOf(c) >= 0 || c >= '1' && c <= '9')
+                atom("\\" + c);
+            else if (c == '<')
+                atom("\\b(?=\\w)");
+            else if (c == '>')
+                atom("\\b(?<=\\w)");
+            else
+                literal(c);
+        }
+
+        private void literal(char c) {
+            atomStart = regex.length();
+            quantified = false;
+            regex.append(quote(c));
+            if (groupStarts.isEmpty()) {
+                run.append(c);
+                lastLiteral = true;
+            }
+        }
+
+        private void atom(String atom) {
+            endRun();
+            atomStart = regex.length();
+            quantified = false;
+            regex.append(atom);
+        }
+
+        private void openGroup() {
+            endRun();
+            groupStarts.push(regex.length());
+            regex.append('(');
+            atomStart = -1;
+        }
+
+        private void closeGroup() {
+            if (groupStarts.isEmpty())
+                throw new PatternSyntaxException("Unmatched closing parenthesis", source, position - 1);
+            atomStart = groupStarts.pop();
+            quantified = false;
+            regex.append(')');
+            lastLiteral = false;
+        }
+
+        private void alternative() {
+            endRun();
+            if (groupStarts.isEmpty())
+                alternation = true;
+            regex.append('|');
+            atomStart = -1;
+        }
+
+        // Parses "m}", "m,}" or "m,n}" (with the given closing string) after an opening brace
+        private void interval(String close) {
+            int end = source.indexOf(close, position);
+            if (end < 0)
+                throw new PatternSyntaxException("Unclosed interval", source, position - 1);
+            String bounds = source.substring(position, end);
+            if (!bounds.matches("\\d+(,\\d*)?"))
+                throw new PatternSyntaxException("Invalid interval", source, position - 1);
+            position = end + close.length();
+            quantifier("{" + bounds + "}", Integer.parseInt(bounds.split(",")[0]) == 0);
+        }
+
+        private void quantifier(String quantifier, boolean optional) {
+            // POSIX allows quantifying a quantified atom, which Java would read as a lazy or possessive quantifier
+            if (quantified) {
+                regex.insert(atomStart, "(?:");
+                regex.append(')');
+            }
+            regex.append(quantifier);
+            quantified = true;
+
+            // A quantified literal ends the run of literals, and is only kept in it if it must appear
+            if (lastLiteral) {
+                if (optional)
+                    run.setLength(run.length() - 1);
+                lastLiteral = false;
+                endRun();
+            }
+        }
+
+        private void endRun() {
+            if (run.length() > 0) {
+                if (anchored)
+                    prefix = run.toString();
+                literals.add(run.toString());
+                run.setLength(0);
+            }
+            anchored = false;
+            lastLiteral = false;
+        }
+
+        // Translates a bracket expression, the opening bracket having been read
+        private String bracket() {
+            StringBuilder set = new StringBuilder("[");
+            int start = position - 1;
+            if (position < source.length()
+                    && (source.charAt(position) == '^' || syntax == GLOB && source.charAt(position) == '!')) {
+                set.append('^');
+                position++;
+            }
+            boolean first = true;
+            while (true) {
+                if (position >= source.length())
+                    throw new PatternSyntaxException("Unclosed bracket expression", source, start);
+                char c = source.charAt(position++);
+                if (c == ']' && !first)
+                    break;
+                first = false;
+
+                if (c == '[' && position < source.length() && source.charAt(position) == ':') {
+                    int end = source.indexOf(":]", position + 1);
+                    if (end < 0)
+                        throw new PatternSyntaxException("Unclosed character class", source, position - 1);
+                    set.append(characterClass(source.substring(position + 1, end)));
+                    position = end + 2;
+                } else if (c == '[' && position < source.length() && "=.".indexOf(source.charAt(position)) >= 0) {
+                    // Equivalence classes and collating symbols of a single character are that character
+                    String close = source.charAt(position) + "]";
+                    int end = source.indexOf(close, position + 1);
+                    if (end != position + 2)
+                        throw new PatternSyntaxException("Unsupported collating element", source, position - 1);
+                    set.append(quote(source.charAt(position + 1)));
+                    position = end + 2;
+                } else if (position + 1 < source.length() && source.charAt(position) == '-'
+                        && source.charAt(position + 1) != ']') {
+                    set.append(quote(c)).append('-').append(quote(source.charAt(position + 1)));
+                    position += 2;
+                } else {
+                    set.append(quote(c));
+                }
+            }
+            return set.append(']').toString();
+        }
+
+        private String characterClass(String name) {
+            switch (name) {
+                case "alpha": return "\\p{Alpha}";
+                case "digit": return "\\p{Digit}";
+                case "alnum": return "\\p{Alnum}";
+                case "upper": return "\\p{Upper}";
+                case "lower": return "\\p{Lower}";
+                case "space": return "\\s";
+                case "blank": return "\\p{Blank}";
+                case "punct": return "\\p{Punct}";
+                case "print": return "\\p{Print}";
+                case "graph": return "\\p{Graph}";
+                case "cntrl": return "\\p{Cntrl}";
+                case "xdigit": return "\\p{XDigit}";
+                default:
+                    throw new PatternSyntaxException("Unknown character class: " + name, source, position);
+            }
+        }
+
+        // A backslash before any character other than a letter or digit makes it literal
+        private static String quote(char c) {
+            return Character.isLetterOrDigit(c) ? String.valueOf(c) : "\\" + c;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package ca.ubc.cs317.dict.index;
+
+import java.util.*;
+
+/**
+ * An immutable trie of the headwords of a database, answering prefix and exact lookups without contacting the
+ * server. Headwords are compared the way dictd does by default: case is ignored, and characters other than letters,
+ * digits and spaces are skipped.
+ *
+ * The headwords are kept in a single character array, sorted by their folded form, so that the headwords starting
+ * with any prefix form a contiguous range. The trie itself only has to find that range: its nodes are stored in
+ * breadth-first order in three parallel arrays holding, for each node, the character leading to it, the position of
+ * its first child (children of a node are consecutive), and the first headword of its range. A lookup walks one node
+ * per character of the prefix and then copies headwords from the range, so the first N completions are found in time
+ * proportional to the prefix length and N, regardless of the size of the database.
+ *
+ * Nodes whose range has only a few headwords are not split any further, which removes most nodes of a trie, since the
+ * tail of most headwords is not shared with any other. Such ranges are narrowed by comparing their headwords with the
+ * rest of the prefix.
+ */
+public class HeadwordTrie {
+
+    private static final int LEAF_SIZE = 8;
+
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] firstWord;
+
+    private final char[] text;
+    private final int[] offsets;
+
+    private HeadwordTrie(char[] labels, int[] firstChild, int[] firstWord, char[] text, int[] offsets) {
+        this.labels = labels;
+        this.firstChild = firstChild;
+        this.firstWord = firstWord;
+        this.text = text;
+        this.offsets = offsets;
+    }
+
+    /** Builds a trie from a list of headwords, such as the result of a MATCH for the empty prefix. Duplicate
+     * headwords are only kept once.
+     *
+     * @param headwords The headwords of a database, in any order.
+     * @return The trie.
+     */
+    public static HeadwordTrie build(Collection<String> headwords) {
+        String[][] entries = new String[headwords.size()][];
+        int count = 0;
+        int textLength = 0;
+        for (String headword : headwords) {
+            entries[count++] = new String[] { fold(headword), headword };
+            textLength += headword.length();
+        }
+        Arrays.sort(entries, 0, count, new Comparator<String[]>() {
+            @Override
+            public int compare(String[] a, String[] b) {
+                int result = a[0].compareTo(b[0]);
+                return result != 0 ? result : a[1].compareTo(b[1]);
+            }
+        });
+
+        // Pack the headwords, skipping duplicates, which are adjacent once sorted
+        char[] text = new char[textLength];
+        int[] offsets = new int[count + 1];
+        int words = 0;
+        int position = 0;
+        int foldedLength = 0;
+        for (int i = 0; i < count; i++) {
+            if (words > 0 && entries[i][1].equals(entries[words - 1][1]))
+                continue;
+            entries[words] = entries[i];
+            entries[i][1].getChars(0, entries[i][1].length(), text, position);
+            offsets[words++] = position;
+            position += entries[i][1].length();
+            foldedLength += entries[i][0].length();
+        }
+        offsets[words] = position;
+
+        // A trie has at most one node per character of its keys, plus the root
+        int capacity = foldedLength + 1;
+        char[] labels = new char[capacity];
+        int[] firstChild = new int[capacity + 1];
+        int[] firstWord = new int[capacity];
+        int[] lastWord = new int[capacity];
+        int[] depth = new int[capacity];
+
+        int nodes = 1;
+        lastWord[0] = words;
+        for (int node = 0; node < nodes; node++) {
+            firstChild[node] = nodes;
+            if (lastWord[node] - firstWord[node] <= LEAF_SIZE)
+                continue;
+            int d = depth[node];
+            int i = firstWord[node];
+
+            // Headwords ending at this node sort before the longer ones sharing its prefix
+            while (i < lastWord[node] && entries[i][0].length() == d)
+                i++;
+            while (i < lastWord[node]) {
+                char c = entries[i][0].charAt(d);
+                labels[nodes] = c;
+                firstWord[nodes] = i;
+                depth[nodes] = d + 1;
+                while (i < lastWord[node] && entries[i][0].charAt(d) == c)
+                    i++;
+                lastWord[nodes] = i;
+                nodes++;
+            }
+        }
+        firstChild[nodes] = nodes;
+
+        return new HeadwordTrie(Arrays.copyOf(labels, nodes), Arrays.copyOf(firstChild, nodes + 1),
+                Arrays.copyOf(firstWord, nodes), Arrays.copyOf(text, position), Arrays.copyOf(offsets, words + 1));
+    }
+
+    /** Returns the number of distinct headwords.
+     *
+     * @return The number of headwords.
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    public int getNodeCount() {
+        return labels.length;
+    }
+
+    /** Returns an estimate of the memory used by this trie, not counting object headers.
+     *
+     * @return The number of bytes used by the arrays of this trie.
+     */
+    public long getMemoryUsage() {
+        return 2L * labels.length + 4L * firstChild.length + 4L * firstWord.length
+                + 2L * text.length + 4L * offsets.length;
+    }
+
+    /** Returns the headwords starting with a prefix, in the order dictd would list them.
+     *
+     * @param prefix The prefix.
+     * @param limit Maximum number of headwords returned.
+     * @return The first headwords starting with the prefix, at most limit of them.
+     */
+    public List<String> complete(String prefix, int limit) {
+        int[] range = range(fold(prefix));
+        if (range == null)
+            return Collections.emptyList();
+
+        List<String> list = new ArrayList<>(Math.min(range[1] - range[0], Math.min(limit, 1024)));
+        for (int i = range[0]; i < range[1] && list.size() < limit; i++)
+            list.add(headword(i));
+        return list;
+    }
+
+    /** Returns the headwords equal to a word once folded.
+     *
+     * @param word The word.
+     * @return The headwords matching the word, in the order dictd would list them.
+     */
+    public List<String> exact(String word) {
+        String key = fold(word);
+        int[] range = range(key);
+        if (range == null)
+            return Collections.emptyList();
+
+        // Headwords equal to the key come first in the range of its node
+        List<String> list = new ArrayList<>(1);
+        for (int i = range[0]; i < range[1]; i++) {
+            String headword = headword(i);
+            if (fold(headword).length() != key.length())
+                break;
+            list.add(headword);
+        }
+        return list;
+    }
+
+    /** Returns the headwords within an edit distance of a word, as the lev strategy of dictd does for a distance of
+     * one. An edit inserts, deletes or replaces a character, or swaps two adjacent characters, and the distance is
+     * measured between folded words. Headwords equal to the word once folded are not included.
+     *
+     * The trie is walked depth first, keeping one row of the edit distance table per level, so that a subtree is
+     * skipped as soon as no headword in it can be close enough to the word.
+     *
+     * @param word The word.
+     * @param maxDistance Maximum number of edits.
+     * @param limit Maximum number of headwords returned.
+     * @return The matching headwords, in the order dictd would list them.
+     */
+    public List<String> similar(String word, int maxDistance, int limit) {
+        SimilarSearch search = new SimilarSearch(fold(word), maxDistance, limit);
+        search.visit(0, 0, size());
+        return search.list;
+    }
+
+    /** Returns a headword by its position in folded order.
+     *
+     * @param index The position of the headword, between 0 and size() - 1.
+     * @return The headword.
+     */
+    public String headword(int index) {
+        return new String(text, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    // Returns the range of headwords starting with a folded prefix, or null if there are none
+    private int[] range(String key) {
+        int node = 0;
+        int end = size();
+        for (int k = 0; k < key.length(); k++) {
+            if (firstChild[node] == firstChild[node + 1])
+                return narrow(firstWord[node], end, key);
+            int child = child(node, key.charAt(k));
+            if (child < 0)
+                return null;
+
+            // The range of a node ends where the range of its next sibling starts, or with the range of its parent
+            if (child + 1 < firstChild[node + 1])
+                end = firstWord[child + 1];
+            node = child;
+        }
+        return new int[] { firstWord[node], end };
+    }
+
+    private int[] narrow(int start, int end, String key) {
+        int first = -1;
+        for (int i = start; i < end; i++) {
+            boolean matches = fold(headword(i)).startsWith(key);
+            if (matches && first < 0)
+                first = i;
+            else if (!matches && first >= 0)
+                return new int[] { first, i };
+        }
+        return first < 0 ? null : new int[] { first, end };
+    }
+
+    private int child(int node, char c) {
+        int low = firstChild[node];
+        int high = firstChild[node + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (labels[middle] < c)
+                low = middle + 1;
+            else if (labels[middle] > c)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -1;
+    }
+
+    /** Folds a word the way dictd compares headwords by default.
+     *
+     * @param word The word.
+     * @return The word in lower case, without characters other than letters, digits and spaces.
+     */
+    public static String fold(CharSequence word) {
+        StringBuilder builder = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == ' ')
+                builder.append(Character.toLowerCase(c));
+        }
+        return builder.toString();
+    }
+
+    // State of a walk collecting the headwords close to a word. Only the cells of the edit distance table within
+    // maxDistance of its diagonal can lead to a match, so each row is only computed over that band, like the states of
+    // a Levenshtein automaton; the cells just outside the band are set to maxDistance + 1.
+    private class SimilarSearch {
+        private final String key;
+        private final int maxDistance;
+        private final int limit;
+        private final List<String> list = new ArrayList<>();
+
+        // rows[d] is the row of the table for the characters on the path to the current node at depth d
+        private final int[][] rows;
+        private final int[] minima;
+        private final char[] path;
+        private final int[][] scratch;
+
+        private SimilarSearch(String key, int maxDistance, int limit) {
+            this.key = key;
+            this.maxDistance = maxDistance;
+            this.limit = limit;
+            rows = new int[key.length() + maxDistance + 1][key.length() + 1];
+            minima = new int[rows.length];
+            path = new char[rows.length];
+            scratch = new int[3][key.length() + 1];
+            for (int j = 0; j <= key.length(); j++)
+                rows[0][j] = Math.min(j, maxDistance + 1);
+        }
+
+        private void visit(int node, int depth, int end) {
+            int start = firstWord[node];
+            int first = firstChild[node];
+            int last = firstChild[node + 1];
+
+            // A leaf keeps its headwords unsplit, finish the table for each of them
+            if (first == last) {
+                for (int i = start; i < end && list.size() < limit; i++) {
+                    int distance = leafDistance(i, depth);
+                    if (distance > 0 && distance <= maxDistance)
+                        list.add(headword(i));
+                }
+                return;
+            }
+
+            // Headwords ending at this node come first in its range
+            int distance = distanceAt(rows[depth], depth);
+            for (int i = start; i < end && distance > 0 && distance <= maxDistance && list.size() < limit; i++) {
+                String headword = headword(i);
+                if (fold(headword).length() != depth)
+                    break;
+                list.add(headword);
+            }
+
+            if (depth + 1 >= rows.length)
+                return;
+
+            // A swap with the next character may still lower the distance by one
+            boolean canSwap = minima[depth] < maxDistance;
+            for (int child = first; child < last && list.size() < limit; child++) {
+                path[depth + 1] = labels[child];
+                minima[depth + 1] = fillRow(depth > 0 ? rows[depth - 1] : null, rows[depth], rows[depth + 1],
+                        depth + 1, labels[child], path[depth]);
+                if (minima[depth + 1] <= maxDistance || canSwap)
+                    visit(child, depth + 1, child + 1 < last ? firstWord[child + 1] : end);
+            }
+        }
+
+        // Continues the table of a leaf at some depth with the folded characters of one of its headwords past that depth
+        private int leafDistance(int index, int depth) {
+            int[] previous2 = depth > 0 ? rows[depth - 1] : null;
+            int[] previous = rows[depth];
+            int previousMinimum = minima[depth];
+            char previousChar = path[depth];
+            int skipped = 0;
+            int i = depth;
+            for (int position = offsets[index]; position < offsets[index + 1]; position++) {
+                char c = text[position];
+                if (!Character.isLetterOrDigit(c) && c != ' ')
+                    continue;
+                if (skipped++ < depth)
+                    continue;
+                c = Character.toLowerCase(c);
+
+                int[] row = scratch[i % 3];
+                i++;
+                if (i >= rows.length)
+                    return maxDistance + 1;
+                int minimum = fillRow(previous2, previous, row, i, c, previousChar);
+                if (minimum > maxDistance && previousMinimum >= maxDistance)
+                    return maxDistance + 1;
+
+                previous2 = previous;
+                previous = row;
+                previousMinimum = minimum;
+                previousChar = c;
+            }
+            return distanceAt(previous, i);
+        }
+
+        // Computes the band of row i of the table, for the character c following previousChar, and returns its minimum
+        private int fillRow(int[] previous2, int[] previous, int[] row, int i, char c, char previousChar) {
+            int infinity = maxDistance + 1;
+            int low = Math.max(1, i - maxDistance);
+            int high = Math.min(key.length(), i + maxDistance);
+            row[0] = Math.min(i, infinity);
+            row[low - 1] = low > 1 ? infinity : row[0];
+            int minimum = row[low - 1];
+            for (int j = low; j <= high; j++) {
+                int value = Math.min(Math.min(previous[j] + 1, row[j - 1] + 1),
+                        previous[j - 1] + (c == key.charAt(j - 1) ? 0 : 1));
+                if (i > 1 && j > 1 && c == key.charAt(j - 2) && previousChar == key.charAt(j - 1))
+                    value = Math.min(value, previous2[j - 2] + 1);
+                row[j] = Math.min(value, infinity);
+                minimum = Math.min(minimum, row[j]);
+            }
+            if (high < key.length())
+                row[high + 1] = infinity;
+            return minimum;
+        }
+
+        private int distanceAt(int[] row, int i) {
+            return Math.abs(i - key.length()) <= maxDistance ? row[key.length()] : maxDistance + 1;
+        }
+    }
+}
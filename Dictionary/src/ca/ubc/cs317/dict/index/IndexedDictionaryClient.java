@@ -0,0 +1,214 @@
+package ca.ubc.cs317.dict.index;
+
+import ca.ubc.cs317.dict.exception.DictConnectionException;
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+import ca.ubc.cs317.dict.model.MatchingStrategy;
+import ca.ubc.cs317.dict.net.DefinitionListener;
+import ca.ubc.cs317.dict.net.DictionaryClient;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A DictionaryClient that answers MATCH requests from local headword indexes, for the databases that have one, and
+ * forwards every other request to another client. An index is built once from the full headword list of a database,
+ * either read from local files or, on request, sent by the server, after which prefix, exact, lev (edit distance of
+ * one), soundex, metaphone, substring, suffix, re, regexp and glob matches for that database no longer need a round
+ * trip to the server. The phonetic strategies are answered from a PhoneticIndex of each encoding, and substring and
+ * suffix from a SuffixIndex, all built along with the headword index. Patterns are compiled to a HeadwordPattern,
+ * which uses both indexes to only try the headwords that can match; a pattern too costly to match locally is sent to
+ * the server instead.
+ *
+ * The special database '*' can be indexed as a whole, like a regular database. Requests for '!' are always forwarded,
+ * since their answer depends on which database has a match first.
+ */
+public class IndexedDictionaryClient implements DictionaryClient {
+
+    public static final String PREFIX = "prefix";
+    public static final String EXACT = "exact";
+    public static final String LEVENSHTEIN = "lev";
+    public static final String SUBSTRING = "substring";
+    public static final String SUFFIX = "suffix";
+    public static final String RE = "re";
+    public static final String REGEXP = "regexp";
+    public static final String GLOB = "glob";
+
+    private static final String FIRST_DATABASE = "!";
+
+    private final DictionaryClient delegate;
+    private final int limit;
+    private final ConcurrentHashMap<String, Indexes> indexes = new ConcurrentHashMap<>();
+
+    /** Creates a client without any index, returning every match found in an index.
+     *
+     * @param delegate The client used for requests that can't be answered locally.
+     */
+    public IndexedDictionaryClient(DictionaryClient delegate) {
+        this(delegate, Integer.MAX_VALUE);
+    }
+
+    /** Creates a client without any index.
+     *
+     * @param delegate The client used for requests that can't be answered locally.
+     * @param limit Maximum number of matches returned for a request answered from an index, other than an exact match.
+     */
+    public IndexedDictionaryClient(DictionaryClient delegate, int limit) {
+        this.delegate = delegate;
+        this.limit = limit;
+    }
+
+    /** Builds the index of a database from its full headword list, obtained by matching the empty prefix, and uses it
+     * for subsequent requests. This sends the whole headword list of the database, so it should only be done when
+     * requested. Since a server may cut long match lists short, and DICT has no way of telling, an index built this
+     * way is only trusted for the matches it finds: requests for which it has none are still sent to the server.
+     *
+     * @param database The database to be indexed.
+     * @return The new index.
+     * @throws DictConnectionException If the headword list can't be retrieved, or was truncated by the server.
+     */
+    public HeadwordTrie buildIndex(Database database) throws DictConnectionException {
+        MatchingStrategy prefix = new MatchingStrategy(PREFIX, "");
+        Set<String> headwords = delegate.getMatchList("", prefix, database);
+
+        // Servers list matches in the order of their index, so a truncated list misses the headwords sorting after
+        // the last one received. Those starting with the same character are requested again: any of them missing
+        // from the list shows it was truncated.
+        String last = null;
+        for (String headword : headwords)
+            last = headword;
+        String folded = last == null ? "" : HeadwordTrie.fold(last);
+        if (!folded.isEmpty()) {
+            Set<String> probe = delegate.getMatchList(folded.substring(0, 1), prefix, database);
+            if (!headwords.containsAll(probe))
+                throw new DictConnectionException("The server truncated the headword list of " + database.getName());
+        }
+
+        HeadwordTrie index = HeadwordTrie.build(headwords);
+        indexes.put(database.getName(), new Indexes(index, false));
+        return index;
+    }
+
+    /** Uses an existing index for a database, for instance one built from local index files. The index must have
+     * every headword of the database, since requests it has no match for are not sent to the server. The phonetic
+     * indexes of the database are built from it.
+     *
+     * @param database The database.
+     * @param index The index of the database, or null to stop using an index for it.
+     */
+    public void setIndex(Database database, HeadwordTrie index) {
+        if (index == null)
+            indexes.remove(database.getName());
+        else
+            indexes.put(database.getName(), new Indexes(index, true));
+    }
+
+    public HeadwordTrie getIndex(Database database) {
+        Indexes databaseIndexes = indexes.get(database.getName());
+        return databaseIndexes == null ? null : databaseIndexes.headwords;
+    }
+
+    @Override
+    public Collection<Definition> getDefinitions(String word, Database database) throws DictConnectionException {
+        return delegate.getDefinitions(word, database);
+    }
+
+    @Override
+    public Collection<Definition> getDefinitions(String word, Database database, DefinitionListener listener) throws DictConnectionException {
+        return delegate.getDefinitions(word, database, listener);
+    }
+
+    @Override
+    public Set<String> getMatchList(String word, MatchingStrategy strategy, Database database) throws DictConnectionException {
+        Indexes databaseIndexes = database.getName().equals(FIRST_DATABASE) ? null : indexes.get(database.getName());
+        if (databaseIndexes != null) {
+            Set<String> matches;
+            try {
+                matches = match(databaseIndexes, word, strategy);
+            } catch (HeadwordPattern.BudgetExceededException e) {
+                // The local search was cut short, so the server is asked for the complete result
+                matches = null;
+            }
+            // An index built from a server's headword list may lack some headwords
+            if (matches != null && (!matches.isEmpty() || databaseIndexes.complete))
+                return matches;
+        }
+        return delegate.getMatchList(word, strategy, database);
+    }
+
+    @Override
+    public Collection<Database> getDatabaseList() throws DictConnectionException {
+        return delegate.getDatabaseList();
+    }
+
+    @Override
+    public Set<MatchingStrategy> getStrategyList() throws DictConnectionException {
+        return delegate.getStrategyList();
+    }
+
+    @Override
+    public void close() {
+        indexes.clear();
+        delegate.close();
+    }
+
+    // Answers a request from the indexes of its database, or returns null if its strategy is not supported
+    private Set<String> match(Indexes databaseIndexes, String word, MatchingStrategy strategy) throws DictConnectionException {
+        HeadwordTrie index = databaseIndexes.headwords;
+        if (strategy.getName().equals(PREFIX))
+            return new LinkedHashSet<>(index.complete(word, limit));
+        if (strategy.getName().equals(EXACT))
+            return new LinkedHashSet<>(index.exact(word));
+        if (strategy.getName().equals(LEVENSHTEIN))
+            return new LinkedHashSet<>(index.similar(word, 1, limit));
+        if (strategy.getName().equals(Soundex.STRATEGY))
+            return new LinkedHashSet<>(databaseIndexes.soundex.match(word, limit));
+        if (strategy.getName().equals(Metaphone.STRATEGY))
+            return new LinkedHashSet<>(databaseIndexes.metaphone.match(word, limit));
+        if (strategy.getName().equals(SUBSTRING))
+            return new LinkedHashSet<>(databaseIndexes.suffixes.substring(word, limit));
+        if (strategy.getName().equals(SUFFIX))
+            return new LinkedHashSet<>(databaseIndexes.suffixes.suffix(word, limit));
+        HeadwordPattern pattern = compile(word, strategy);
+        if (pattern != null)
+            return new LinkedHashSet<>(pattern.match(index, databaseIndexes.suffixes, limit,
+                    HeadwordPattern.DEFAULT_BUDGET));
+        return null;
+    }
+
+    // Compiles the pattern of a re, regexp or glob request, or returns null for any other strategy
+    private static HeadwordPattern compile(String word, MatchingStrategy strategy) throws DictConnectionException {
+        try {
+            if (strategy.getName().equals(RE))
+                return HeadwordPattern.extended(word);
+            if (strategy.getName().equals(REGEXP))
+                return HeadwordPattern.basic(word);
+            if (strategy.getName().equals(GLOB))
+                return HeadwordPattern.glob(word);
+            return null;
+        } catch (PatternSyntaxException e) {
+            throw new DictConnectionException("Invalid pattern: " + word, e);
+        }
+    }
+
+    // The indexes of one database, which are always replaced together
+    private static class Indexes {
+        private final HeadwordTrie headwords;
+        private final PhoneticIndex soundex;
+        private final PhoneticIndex metaphone;
+        private final SuffixIndex suffixes;
+        // Whether the headwords are known to be complete, so that finding no match is an answer
+        private final boolean complete;
+
+        private Indexes(HeadwordTrie headwords, boolean complete) {
+            this.headwords = headwords;
+            this.complete = complete;
+            this.soundex = PhoneticIndex.build(headwords, new Soundex());
+            this.metaphone = PhoneticIndex.build(headwords, new Metaphone());
+            this.suffixes = SuffixIndex.build(headwords);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package ca.ubc.cs317.dict.index;
+
+/**
+ * The original Metaphone encoding by Lawrence Philips, limited to four characters. It knows more English spelling
+ * rules than Soundex (silent letters, "PH" sounding like F, soft and hard C and G...), and encodes "TH" as '0'.
+ * Characters other than ASCII letters are ignored.
+ */
+public class Metaphone implements PhoneticEncoder {
+
+    public static final String STRATEGY = "metaphone";
+
+    private static final int LENGTH = 4;
+
+    private static final String VOWELS = "AEIOU";
+    private static final String FRONT_VOWELS = "EIY";
+    private static final String AFFECTS_H = "CSPTG";
+
+    @Override
+    public String getStrategy() {
+        return STRATEGY;
+    }
+
+    @Override
+    public String encode(String word) {
+        StringBuilder letters = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = Character.toUpperCase(word.charAt(i));
+            if (c >= 'A' && c <= 'Z')
+                letters.append(c);
+        }
+        String w = letters.toString();
+        if (w.length() <= 1)
+            return w;
+
+        StringBuilder code = new StringBuilder(LENGTH);
+        int n = 0;
+
+        // Letters at the start of a word follow a few special rules
+        switch (w.charAt(0)) {
+            case 'A':
+                if (w.charAt(1) == 'E') {
+                    code.append('E');
+                    n = 2;
+                } else {
+                    code.append('A');
+                    n = 1;
+                }
+                break;
+            case 'G':
+            case 'K':
+            case 'P':
+                if (w.charAt(1) == 'N') {
+                    code.append('N');
+                    n = 2;
+                }
+                break;
+            case 'W':
+                if (w.charAt(1) == 'R') {
+                    code.append('R');
+                    n = 2;
+                } else if (w.charAt(1) == 'H' || isVowel(w.charAt(1))) {
+                    code.append('W');
+                    n = 2;
+                }
+                break;
+            case 'X':
+                code.append('S');
+                n = 1;
+                break;
+            case 'E':
+            case 'I':
+            case 'O':
+            case 'U':
+                code.append(w.charAt(0));
+                n = 1;
+                break;
+        }
+
+        for (; n < w.length() && code.length() < LENGTH; n++) {
+            char c = w.charAt(n);
+
+            // Double letters, except C, are encoded once
+            if (c != 'C' && n > 0 && w.charAt(n - 1) == c)
+                continue;
+
+            switch (c) {
+                case 'A':
+                case 'E':
+                case 'I':
+                case 'O':
+                case 'U':
+                    if (n == 0)
+                        code.append(c);
+                    break;
+                case 'B':
+                    // Silent in a final "MB"
+                    if (!(n == w.length() - 1 && n > 0 && w.charAt(n - 1) == 'M'))
+                        code.append('B');
+                    break;
+                case 'C':
+                    if (n > 0 && w.charAt(n - 1) == 'S' && isFrontVowel(w, n + 1))
+                        break;
+                    if (w.startsWith("CIA", n))
+                        code.append('X');
+                    else if (isFrontVowel(w, n + 1))
+                        code.append('S');
+                    else if (n > 0 && w.charAt(n - 1) == 'S' && charAt(w, n + 1) == 'H')
+                        code.append('K');
+                    else if (charAt(w, n + 1) == 'H')
+                        code.append(n == 0 && w.length() >= 3 && isVowel(w.charAt(2)) ? 'K' : 'X');
+                    else
+                        code.append('K');
+                    break;
+                case 'D':
+                    if (charAt(w, n + 1) == 'G' && isFrontVowel(w, n + 2)) {
+                        code.append('J');
+                        n += 2;
+                    } else {
+                        code.append('T');
+                    }
+                    break;
+                case 'G':
+                    if (charAt(w, n + 1) == 'H' && (n + 2 == w.length() || !isVowel(charAt(w, n + 2))))
+                        break;
+                    if (n > 0 && (w.startsWith("GN", n) && n + 2 == w.length() || w.startsWith("GNED", n)
+                            && n + 4 == w.length()))
+                        break;
+                    if (isFrontVowel(w, n + 1) && !(n > 0 && w.charAt(n - 1) == 'G'))
+                        code.append('J');
+                    else
+                        code.append('K');
+                    break;
+                case 'H':
+                    if (n == w.length() - 1)
+                        break;
+                    if (n > 0 && AFFECTS_H.indexOf(w.charAt(n - 1)) >= 0)
+                        break;
+                    if (isVowel(w.charAt(n + 1)))
+                        code.append('H');
+                    break;
+                case 'K':
+                    if (n == 0 || w.charAt(n - 1) != 'C')
+                        code.append('K');
+                    break;
+                case 'P':
+                    code.append(charAt(w, n + 1) == 'H' ? 'F' : 'P');
+                    break;
+                case 'Q':
+                    code.append('K');
+                    break;
+                case 'S':
+                    if (w.startsWith("SH", n) || w.startsWith("SIO", n) || w.startsWith("SIA", n))
+                        code.append('X');
+                    else
+                        code.append('S');
+                    break;
+                case 'T':
+                    if (w.startsWith("TIA", n) || w.startsWith("TIO", n))
+                        code.append('X');
+                    else if (w.startsWith("TH", n))
+                        code.append('0');
+                    else if (!w.startsWith("TCH", n))
+                        code.append('T');
+                    break;
+                case 'V':
+                    code.append('F');
+                    break;
+                case 'W':
+                case 'Y':
+                    if (n < w.length() - 1 && isVowel(w.charAt(n + 1)))
+                        code.append(c);
+                    break;
+                case 'X':
+                    code.append('K');
+                    if (code.length() < LENGTH)
+                        code.append('S');
+                    break;
+                case 'Z':
+                    code.append('S');
+                    break;
+                default:
+                    // F, J, L, M, N and R sound like themselves
+                    code.append(c);
+                    break;
+            }
+        }
+        return code.toString();
+    }
+
+    private static char charAt(String w, int n) {
+        return n < w.length() ? w.charAt(n) : 0;
+    }
+
+    private static boolean isVowel(char c) {
+        return c != 0 && VOWELS.indexOf(c) >= 0;
+    }
+
+    private static boolean isFrontVowel(String w, int n) {
+        return n < w.length() && FRONT_VOWELS.indexOf(w.charAt(n)) >= 0;
+    }
+}
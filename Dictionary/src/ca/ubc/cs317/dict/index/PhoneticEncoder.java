@@ -0,0 +1,21 @@
+package ca.ubc.cs317.dict.index;
+
+/**
+ * Maps a word to a short code describing how it sounds, so that words sounding alike share the same code.
+ */
+public interface PhoneticEncoder {
+
+    /** Returns the name of the DICT matching strategy using this encoding.
+     *
+     * @return The strategy name, e.g., "soundex".
+     */
+    String getStrategy();
+
+    /** Computes the code of a word. Codes only use upper case letters and digits, and are at most
+     * PhoneticIndex.MAX_CODE_LENGTH characters long.
+     *
+     * @param word The word to be encoded.
+     * @return The code of the word, or an empty string if the word has no letter that can be encoded.
+     */
+    String encode(String word);
+}
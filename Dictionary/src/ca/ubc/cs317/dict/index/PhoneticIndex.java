@@ -0,0 +1,156 @@
+package ca.ubc.cs317.dict.index;
+
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable index from the phonetic code of each headword of a HeadwordTrie to the headwords having that code,
+ * answering a phonetic MATCH with one binary search. Codes are packed into longs, and the posting lists are stored
+ * back to back in a single int array of headword positions in the trie, so the index needs about 4 bytes per headword
+ * plus 12 bytes per distinct code.
+ *
+ * The index is built, and bulk lookups are run, on all available cores. Since it never changes once built, any number
+ * of threads may use it at the same time.
+ */
+public class PhoneticIndex {
+
+    public static final int MAX_CODE_LENGTH = 5;
+
+    private static final int RADIX = 37;
+
+    private final HeadwordTrie headwords;
+    private final PhoneticEncoder encoder;
+    private final long[] codes;
+    private final int[] starts;
+    private final int[] postings;
+
+    private PhoneticIndex(HeadwordTrie headwords, PhoneticEncoder encoder, long[] codes, int[] starts, int[] postings) {
+        this.headwords = headwords;
+        this.encoder = encoder;
+        this.codes = codes;
+        this.starts = starts;
+        this.postings = postings;
+    }
+
+    /** Encodes every headword of a trie and groups them by code.
+     *
+     * @param headwords The headwords to be indexed.
+     * @param encoder The phonetic encoding.
+     * @return The index.
+     */
+    public static PhoneticIndex build(final HeadwordTrie headwords, final PhoneticEncoder encoder) {
+        // Sorting the code of each headword next to its position groups the headwords by code, in trie order
+        long[] keys = new long[headwords.size()];
+        Arrays.parallelSetAll(keys, new IntToLongFunction() {
+            @Override
+            public long applyAsLong(int i) {
+                return pack(encoder.encode(headwords.headword(i))) << 32 | i;
+            }
+        });
+        Arrays.parallelSort(keys);
+
+        // Headwords without any letter to encode have the code 0, and are not indexed
+        int first = 0;
+        while (first < keys.length && keys[first] >>> 32 == 0)
+            first++;
+
+        int distinct = 0;
+        for (int i = first; i < keys.length; i++) {
+            if (i == first || keys[i] >>> 32 != keys[i - 1] >>> 32)
+                distinct++;
+        }
+
+        long[] codes = new long[distinct];
+        int[] starts = new int[distinct + 1];
+        int[] postings = new int[keys.length - first];
+        int code = -1;
+        for (int i = first; i < keys.length; i++) {
+            if (i == first || keys[i] >>> 32 != keys[i - 1] >>> 32) {
+                codes[++code] = keys[i] >>> 32;
+                starts[code] = i - first;
+            }
+            postings[i - first] = (int) keys[i];
+        }
+        starts[distinct] = postings.length;
+        return new PhoneticIndex(headwords, encoder, codes, starts, postings);
+    }
+
+    public PhoneticEncoder getEncoder() {
+        return encoder;
+    }
+
+    /** Returns the number of distinct codes.
+     *
+     * @return The number of codes having at least one headword.
+     */
+    public int size() {
+        return codes.length;
+    }
+
+    /** Returns an estimate of the memory used by this index, not counting object headers or the trie.
+     *
+     * @return The number of bytes used by the arrays of this index.
+     */
+    public long getMemoryUsage() {
+        return 8L * codes.length + 4L * starts.length + 4L * postings.length;
+    }
+
+    /** Returns the headwords having the same code as a word.
+     *
+     * @param word The word.
+     * @param limit Maximum number of headwords returned.
+     * @return The headwords sounding like the word, in the order dictd would list them.
+     */
+    public List<String> match(String word, int limit) {
+        String encoded = encoder.encode(word);
+        if (encoded.isEmpty())
+            return Collections.emptyList();
+
+        int code = Arrays.binarySearch(codes, pack(encoded));
+        if (code < 0)
+            return Collections.emptyList();
+
+        int end = starts[code] + Math.min(limit, starts[code + 1] - starts[code]);
+        List<String> list = new ArrayList<>(end - starts[code]);
+        for (int i = starts[code]; i < end; i++)
+            list.add(headwords.headword(postings[i]));
+        return list;
+    }
+
+    /** Looks up many words at once, spreading the lookups over all available cores.
+     *
+     * @param words The words.
+     * @param limit Maximum number of headwords returned for each word.
+     * @return The result of match for each word, in the same order as the words.
+     */
+    public List<List<String>> matchAll(final List<String> words, final int limit) {
+        return IntStream.range(0, words.size()).parallel().mapToObj(new IntFunction<List<String>>() {
+            @Override
+            public List<String> apply(int i) {
+                return match(words.get(i), limit);
+            }
+        }).collect(Collectors.<List<String>>toList());
+    }
+
+    // Packs a code of up to MAX_CODE_LENGTH digits and upper case letters into a number, 0 being the empty code
+    private static long pack(String code) {
+        if (code.length() > MAX_CODE_LENGTH)
+            throw new IllegalArgumentException("Phonetic code too long: " + code);
+        long packed = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            int value;
+            if (c >= '0' && c <= '9')
+                value = c - '0' + 1;
+            else if (c >= 'A' && c <= 'Z')
+                value = c - 'A' + 11;
+            else
+                throw new IllegalArgumentException("Invalid character in phonetic code: " + code);
+            packed = packed * RADIX + value;
+        }
+        return packed;
+    }
+}
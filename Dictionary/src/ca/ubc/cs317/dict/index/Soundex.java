@@ -0,0 +1,42 @@
+package ca.ubc.cs317.dict.index;
+
+/**
+ * The Soundex encoding, as computed by dictd for its soundex strategy: the first letter of the word followed by three
+ * digits, one for each following group of similar consonants. Characters other than ASCII letters are ignored, vowels
+ * and H, W, Y are not encoded but separate repeated consonants, and short codes are padded with zeros.
+ */
+public class Soundex implements PhoneticEncoder {
+
+    public static final String STRATEGY = "soundex";
+
+    private static final String TABLE = "01230120022455012623010202";
+    private static final int LENGTH = 4;
+
+    @Override
+    public String getStrategy() {
+        return STRATEGY;
+    }
+
+    @Override
+    public String encode(String word) {
+        StringBuilder code = new StringBuilder(LENGTH);
+        char last = 0;
+        for (int i = 0; i < word.length() && code.length() < LENGTH; i++) {
+            char c = Character.toUpperCase(word.charAt(i));
+            if (c < 'A' || c > 'Z')
+                continue;
+
+            char digit = TABLE.charAt(c - 'A');
+            if (code.length() == 0)
+                code.append(c);
+            else if (digit != '0' && digit != last)
+                code.append(digit);
+            last = digit;
+        }
+        if (code.length() == 0)
+            return "";
+        while (code.length() < LENGTH)
+            code.append('0');
+        return code.toString();
+    }
+}
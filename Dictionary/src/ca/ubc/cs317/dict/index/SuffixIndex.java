@@ -0,0 +1,220 @@
+package ca.ubc.cs317.dict.index;
+
+import java.util.*;
+
+/**
+ * An immutable suffix array over the folded headwords of a HeadwordTrie, answering substring and suffix lookups
+ * without scanning every headword. The folded headwords are concatenated, each followed by a separator, and the
+ * starting positions of all their suffixes are sorted; the suffixes starting with any string then form a contiguous
+ * range, found with two binary searches. A suffix lookup is a substring lookup for the string followed by the
+ * separator.
+ *
+ * The array is sorted by prefix doubling: after the round for length k, suffixes are ranked by their first k
+ * characters, and the next round sorts them by pairs of ranks with two passes of counting sort. Each separator is
+ * given its own rank, lower than that of any character, so that no two suffixes compare equal past the end of a
+ * headword and the number of rounds only depends on the length of the longest headword.
+ */
+public class SuffixIndex {
+
+    private static final char SEPARATOR = '\0';
+
+    private final HeadwordTrie headwords;
+    private final char[] text;
+    private final int[] starts;
+    private final int[] suffixes;
+
+    private SuffixIndex(HeadwordTrie headwords, char[] text, int[] starts, int[] suffixes) {
+        this.headwords = headwords;
+        this.text = text;
+        this.starts = starts;
+        this.suffixes = suffixes;
+    }
+
+    /** Builds the suffix array of the headwords of a trie.
+     *
+     * @param headwords The headwords to be indexed.
+     * @return The index.
+     */
+    public static SuffixIndex build(HeadwordTrie headwords) {
+        int words = headwords.size();
+        StringBuilder builder = new StringBuilder();
+        int[] starts = new int[words + 1];
+        for (int i = 0; i < words; i++) {
+            starts[i] = builder.length();
+            builder.append(HeadwordTrie.fold(headwords.headword(i))).append(SEPARATOR);
+        }
+        starts[words] = builder.length();
+        char[] text = new char[builder.length()];
+        builder.getChars(0, text.length, text, 0);
+
+        int[] sorted = sort(text, words);
+
+        // Suffixes starting with a separator never match a non-empty string, so they are left out
+        int[] suffixes = new int[text.length - words];
+        int count = 0;
+        for (int suffix : sorted) {
+            if (text[suffix] != SEPARATOR)
+                suffixes[count++] = suffix;
+        }
+        return new SuffixIndex(headwords, text, starts, suffixes);
+    }
+
+    /** Returns the number of suffixes in the array.
+     *
+     * @return The number of characters of the folded headwords.
+     */
+    public int size() {
+        return suffixes.length;
+    }
+
+    /** Returns an estimate of the memory used by this index, not counting object headers or the trie.
+     *
+     * @return The number of bytes used by the arrays of this index.
+     */
+    public long getMemoryUsage() {
+        return 2L * text.length + 4L * starts.length + 4L * suffixes.length;
+    }
+
+    /** Returns the headwords containing a string once both are folded.
+     *
+     * @param word The string.
+     * @param limit Maximum number of headwords returned.
+     * @return The first headwords containing the string, in the order dictd would list them.
+     */
+    public List<String> substring(String word, int limit) {
+        return find(HeadwordTrie.fold(word), false, limit);
+    }
+
+    /** Returns the headwords ending with a string once both are folded.
+     *
+     * @param word The string.
+     * @param limit Maximum number of headwords returned.
+     * @return The first headwords ending with the string, in the order dictd would list them.
+     */
+    public List<String> suffix(String word, int limit) {
+        return find(HeadwordTrie.fold(word), true, limit);
+    }
+
+    private List<String> find(String key, boolean suffix, int limit) {
+        // Every headword contains and ends with the empty string
+        if (key.isEmpty())
+            return headwords.complete("", limit);
+        if (suffix)
+            key += SEPARATOR;
+
+        int low = lowerBound(key, false);
+        int high = lowerBound(key, true);
+        if (low == high || limit <= 0)
+            return Collections.emptyList();
+
+        // Matching suffixes are in text order, not headword order, and a headword may contain the key more than once
+        BitSet matches = new BitSet(headwords.size());
+        for (int i = low; i < high; i++)
+            matches.set(headwordAt(suffixes[i]));
+
+        List<String> list = new ArrayList<>(Math.min(high - low, Math.min(limit, 1024)));
+        for (int i = matches.nextSetBit(0); i >= 0 && list.size() < limit; i = matches.nextSetBit(i + 1))
+            list.add(headwords.headword(i));
+        return list;
+    }
+
+    // Returns the position of the first suffix not smaller than the key or, if after is set, not starting with it
+    private int lowerBound(String key, boolean after) {
+        int low = 0;
+        int high = suffixes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int result = compare(suffixes[middle], key);
+            if (result < 0 || after && result == 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    // Compares a suffix with a key, returning 0 if the suffix starts with the key. Since the text ends with a separator
+    // and keys only contain one at their end, the comparison never reads past the end of the text.
+    private int compare(int suffix, String key) {
+        for (int k = 0; k < key.length(); k++) {
+            char c = text[suffix + k];
+            if (c != key.charAt(k))
+                return c < key.charAt(k) ? -1 : 1;
+        }
+        return 0;
+    }
+
+    private int headwordAt(int position) {
+        int index = Arrays.binarySearch(starts, position);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    // Sorts the suffixes of a text containing the given number of separators by prefix doubling
+    private static int[] sort(char[] text, int separators) {
+        int n = text.length;
+        int[] suffixes = new int[n];
+        int[] rank = new int[n];
+        int[] previous = new int[n];
+        if (n == 0)
+            return suffixes;
+
+        // Initial ranks: separators by position, then characters by value
+        int[] characterRank = new int[Character.MAX_VALUE + 1];
+        for (char c : text)
+            characterRank[c] = 1;
+        int ranks = separators;
+        for (int c = SEPARATOR + 1; c <= Character.MAX_VALUE; c++) {
+            if (characterRank[c] != 0)
+                characterRank[c] = ranks++;
+        }
+        int separator = 0;
+        for (int i = 0; i < n; i++)
+            rank[i] = text[i] == SEPARATOR ? separator++ : characterRank[text[i]];
+
+        int[] count = new int[Math.max(ranks, n) + 1];
+        for (int i = 0; i < n; i++)
+            previous[i] = i;
+        countingSort(previous, suffixes, rank, count, ranks);
+        if (ranks == n)
+            return suffixes;
+
+        for (int k = 1; ; k <<= 1) {
+            // Sort by the rank of the second half first: suffixes too short to have one come first
+            int j = 0;
+            for (int i = Math.max(n - k, 0); i < n; i++)
+                previous[j++] = i;
+            for (int suffix : suffixes) {
+                if (suffix >= k)
+                    previous[j++] = suffix - k;
+            }
+            countingSort(previous, suffixes, rank, count, ranks);
+
+            // Suffixes having the same pair of ranks keep sharing a rank
+            int[] next = previous;
+            next[suffixes[0]] = 0;
+            ranks = 1;
+            for (int i = 1; i < n; i++) {
+                int a = suffixes[i - 1];
+                int b = suffixes[i];
+                if (rank[a] != rank[b] || (a + k < n ? rank[a + k] : -1) != (b + k < n ? rank[b + k] : -1))
+                    ranks++;
+                next[b] = ranks - 1;
+            }
+            previous = rank;
+            rank = next;
+            if (ranks == n)
+                return suffixes;
+        }
+    }
+
+    // Stable sort of the suffixes in input by their rank, into output
+    private static void countingSort(int[] input, int[] output, int[] rank, int[] count, int ranks) {
+        Arrays.fill(count, 0, ranks + 1, 0);
+        for (int suffix : input)
+            count[rank[suffix] + 1]++;
+        for (int r = 0; r < ranks; r++)
+            count[r + 1] += count[r];
+        for (int suffix : input)
+            output[count[rank[suffix]]++] = suffix;
+    }
+}
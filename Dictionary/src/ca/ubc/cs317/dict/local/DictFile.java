@@ -0,0 +1,20 @@
+package ca.ubc.cs317.dict.local;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Random access to the uncompressed content of a dictd .dict file, whether it is stored as is or compressed with
+ * dictzip. Implementations may be read from several threads at the same time.
+ */
+interface DictFile extends Closeable {
+
+    /** Reads a range of the uncompressed content.
+     *
+     * @param offset The position of the first byte.
+     * @param length The number of bytes to be read.
+     * @return The bytes read.
+     * @throws IOException If the file can't be read or the range goes past its end.
+     */
+    byte[] read(long offset, int length) throws IOException;
+}
@@ -0,0 +1,181 @@
+package ca.ubc.cs317.dict.local;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Random access to a .dict.dz file. A dictzip file is a regular gzip file whose content was compressed in chunks of
+ * equal uncompressed size, flushing the compressor at the end of each chunk, and whose header has an "RA" extra field
+ * listing the compressed size of every chunk. Any chunk can therefore be inflated on its own, so a read only inflates
+ * the chunks covering the requested range. The most recently used chunks are kept uncompressed.
+ */
+class DictZipReader implements DictFile {
+
+    static final int DEFAULT_CACHED_CHUNKS = 32;
+
+    private static final int FHCRC = 0x02, FEXTRA = 0x04, FNAME = 0x08, FCOMMENT = 0x10;
+    private static final int HEADER_SIZE = 12;
+
+    private final SharedFileChannel channel;
+    private final int maxCachedChunks;
+    private int chunkLength;
+    private long[] chunkOffsets;
+
+    private final LinkedHashMap<Integer, byte[]> chunks = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Opens a dictzip file and reads its chunk table.
+     *
+     * @param path The .dict.dz file.
+     * @param maxCachedChunks Number of uncompressed chunks kept in memory.
+     * @throws IOException If the file can't be read or is not a dictzip file.
+     */
+    DictZipReader(Path path, int maxCachedChunks) throws IOException {
+        this.maxCachedChunks = maxCachedChunks;
+        channel = new SharedFileChannel(path);
+        try {
+            readHeader(path);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void readHeader(Path path) throws IOException {
+        ByteBuffer header = readFully(0, HEADER_SIZE);
+        if (header.get(0) != 0x1f || header.get(1) != (byte) 0x8b || header.get(2) != 8)
+            throw new IOException("Not a gzip file: " + path);
+        int flags = header.get(3);
+        if ((flags & FEXTRA) == 0)
+            throw new IOException("Not a dictzip file: " + path);
+
+        int extraLength = header.getShort(10) & 0xffff;
+        ByteBuffer extra = readFully(HEADER_SIZE, extraLength);
+        while (chunkOffsets == null && extra.remaining() >= 4) {
+            byte id1 = extra.get();
+            byte id2 = extra.get();
+            int length = extra.getShort() & 0xffff;
+            if (id1 == 'R' && id2 == 'A') {
+                int version = extra.getShort() & 0xffff;
+                if (version != 1)
+                    throw new IOException("Unsupported dictzip version " + version + ": " + path);
+                chunkLength = extra.getShort() & 0xffff;
+                chunkOffsets = new long[(extra.getShort() & 0xffff) + 1];
+            } else {
+                extra.position(extra.position() + length);
+            }
+        }
+        if (chunkOffsets == null)
+            throw new IOException("Not a dictzip file: " + path);
+
+        // The compressed data starts after the optional file name, comment and header checksum
+        long position = HEADER_SIZE + extraLength;
+        if ((flags & FNAME) != 0)
+            position = skipString(position);
+        if ((flags & FCOMMENT) != 0)
+            position = skipString(position);
+        if ((flags & FHCRC) != 0)
+            position += 2;
+
+        chunkOffsets[0] = position;
+        for (int i = 1; i < chunkOffsets.length; i++)
+            chunkOffsets[i] = chunkOffsets[i - 1] + (extra.getShort() & 0xffff);
+    }
+
+    @Override
+    public byte[] read(long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long position = offset + copied;
+            long index = position / chunkLength;
+            if (index >= chunkOffsets.length - 1)
+                throw new EOFException("Entry past the end of the data file");
+
+            byte[] chunk = chunk((int) index);
+            int start = (int) (position % chunkLength);
+            if (start >= chunk.length)
+                throw new EOFException("Entry past the end of the data file");
+            int count = Math.min(chunk.length - start, length - copied);
+            System.arraycopy(chunk, start, bytes, copied, count);
+            copied += count;
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte[] chunk(int index) throws IOException {
+        synchronized (chunks) {
+            byte[] chunk = chunks.get(index);
+            if (chunk != null)
+                return chunk;
+        }
+
+        // Inflate outside the lock, so that lookups in other chunks don't wait; two threads may occasionally inflate
+        // the same chunk
+        ByteBuffer compressed = readFully(chunkOffsets[index], (int) (chunkOffsets[index + 1] - chunkOffsets[index]));
+        byte[] chunk = new byte[chunkLength];
+        int length = 0;
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed.array());
+            while (length < chunk.length && !inflater.finished()) {
+                int count = inflater.inflate(chunk, length, chunk.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                length += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt chunk " + index + " in dictzip file", e);
+        } finally {
+            inflater.end();
+        }
+        if (length < chunk.length)
+            chunk = Arrays.copyOf(chunk, length);
+
+        synchronized (chunks) {
+            chunks.put(index, chunk);
+            Iterator<byte[]> eldest = chunks.values().iterator();
+            while (chunks.size() > maxCachedChunks && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return chunk;
+    }
+
+    private long skipString(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        while (true) {
+            buffer.clear();
+            if (channel.read(buffer, position) < 0)
+                throw new EOFException("Truncated gzip header");
+            for (int i = 0; i < buffer.position(); i++) {
+                if (buffer.get(i) == 0)
+                    return position + i + 1;
+            }
+            position += buffer.position();
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("Unexpected end of dictzip file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,160 @@
+package ca.ubc.cs317.dict.local;
+
+import ca.ubc.cs317.dict.index.DefinitionSource;
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * One dictd database: a sorted .index file and the .dict or .dict.dz file holding the entries it points to. Headwords
+ * starting with "00-database" or "00database" describe the database itself and are left out of matches, as dictd does.
+ */
+class DictdDatabase {
+
+    private static final String SHORT_DESCRIPTION = "00-database-short";
+
+    private final Database database;
+    private final DictdIndex index;
+    private final DictFile data;
+
+    /** Opens a database from its index file and its data file. The data file is closed if the index can't be read.
+     *
+     * @param name The name of the database.
+     * @param indexFile The .index file.
+     * @param data The .dict or .dict.dz file.
+     * @throws IOException If either file can't be read.
+     */
+    DictdDatabase(String name, Path indexFile, DictFile data) throws IOException {
+        this.data = data;
+        try {
+            index = new DictdIndex(indexFile);
+            database = new Database(name, readDescription(name));
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            throw e;
+        }
+    }
+
+    Database getDatabase() {
+        return database;
+    }
+
+    DictdIndex getIndex() {
+        return index;
+    }
+
+    /** Retrieves every entry whose headword matches a word, ignoring case and the characters dictd ignores. Several
+     * headwords pointing to the same entry only produce one definition.
+     *
+     * @param word The word whose definitions are to be retrieved.
+     * @return The definitions, in index order.
+     * @throws IOException If the .dict file can't be read.
+     */
+    List<Definition> define(String word) throws IOException {
+        String key = index.fold(word);
+        List<Definition> definitions = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (int line = index.lowerBound(key); line < index.end() && index.compare(line, key, false) == 0;
+             line = index.next(line)) {
+            long offset = index.offset(line);
+            if (!seen.add(offset))
+                continue;
+            Definition definition = new Definition(word, database);
+            definition.setDefinition(read(offset, index.length(line)));
+            definitions.add(definition);
+        }
+        return definitions;
+    }
+
+    /** Adds the headwords that match a word, or start with it, to a collection.
+     *
+     * @param word The word or prefix to be matched.
+     * @param prefix true to match every headword starting with the word, false to match the word exactly.
+     * @param matches The collection the headwords are added to.
+     */
+    void match(String word, boolean prefix, Collection<String> matches) {
+        String key = index.fold(word);
+        for (int line = index.lowerBound(key); line < index.end() && index.compare(line, key, prefix) == 0;
+             line = index.next(line)) {
+            String headword = index.headword(line);
+            if (!isHidden(headword))
+                matches.add(headword);
+        }
+    }
+
+    /** Lists every entry of the database once, under the first headword pointing to it, leaving out the entries
+     * describing the database. The entries are read from the data file when requested.
+     *
+     * @return The entries, in index order.
+     */
+    DefinitionSource entries() {
+        int[] found = new int[1024];
+        int count = 0;
+        Set<Long> seen = new HashSet<>();
+        for (int line = 0; line < index.end(); line = index.next(line)) {
+            if (isHidden(index.headword(line)) || !seen.add(index.offset(line)))
+                continue;
+            if (count == found.length)
+                found = Arrays.copyOf(found, count * 2);
+            found[count++] = line;
+        }
+
+        final int[] lines = Arrays.copyOf(found, count);
+        return new DefinitionSource() {
+            @Override
+            public int size() {
+                return lines.length;
+            }
+
+            @Override
+            public Definition get(int index) throws IOException {
+                Definition definition = new Definition(DictdDatabase.this.index.headword(lines[index]), database);
+                definition.setDefinition(read(DictdDatabase.this.index.offset(lines[index]),
+                        DictdDatabase.this.index.length(lines[index])));
+                return definition;
+            }
+        };
+    }
+
+    /** Reads an entry from the data file.
+     *
+     * @param offset The position of the entry in the uncompressed data.
+     * @param length The size of the entry, in bytes.
+     * @return The text of the entry.
+     * @throws IOException If the file can't be read or is shorter than expected.
+     */
+    String read(long offset, int length) throws IOException {
+        return new String(data.read(offset, length), index.getCharset());
+    }
+
+    void close() {
+        try {
+            data.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    private String readDescription(String name) throws IOException {
+        int line = index.find(SHORT_DESCRIPTION);
+        if (line < 0)
+            return name;
+
+        // The entry starts with its own headword, followed by the description on the next non-empty line
+        for (String text : read(index.offset(line), index.length(line)).split("\n")) {
+            text = text.trim();
+            if (text.startsWith(SHORT_DESCRIPTION))
+                text = text.substring(SHORT_DESCRIPTION.length()).trim();
+            if (!text.isEmpty())
+                return text;
+        }
+        return name;
+    }
+
+    static boolean isHidden(String headword) {
+        return headword.startsWith("00-database") || headword.startsWith("00database");
+    }
+}
@@ -0,0 +1,253 @@
+package ca.ubc.cs317.dict.local;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A dictd .index file, mapped into memory and searched in place. Each line has the form
+ * "headword TAB offset TAB length [TAB original headword]", where the offset and length of the entry in the .dict file
+ * are written in dictd's base64 notation, and lines are sorted by their folded headword.
+ *
+ * Lines are addressed by the position of their first byte. Binary search works directly on byte positions: the middle
+ * of a range is moved back to the start of its line, so no table of line positions has to be built.
+ */
+class DictdIndex {
+
+    private static final String BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        for (int i = 0; i < BASE64.length(); i++)
+            BASE64_VALUES[BASE64.charAt(i)] = (byte) i;
+    }
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private boolean allChars;
+    private Charset charset = StandardCharsets.ISO_8859_1;
+
+    /** Maps an index file into memory, and reads the flags stored in its 00-database-allchars and 00-database-utf8
+     * entries.
+     *
+     * @param path The .index file.
+     * @throws IOException If the file can't be read or is larger than 2GB.
+     */
+    DictdIndex(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Index file too large: " + path);
+            size = (int) channel.size();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        // The flags decide how headwords were sorted, so look for them under both orders
+        allChars = true;
+        boolean sortedWithAllChars = find("00-database-allchars") >= 0;
+        allChars = false;
+        allChars = sortedWithAllChars || find("00-database-allchars") >= 0;
+        if (find("00-database-utf8") >= 0)
+            charset = StandardCharsets.UTF_8;
+    }
+
+    /** Returns the character set used by the headwords and definitions of this database.
+     *
+     * @return UTF-8 if the database has a 00-database-utf8 entry, ISO-8859-1 otherwise.
+     */
+    Charset getCharset() {
+        return charset;
+    }
+
+    /** Returns the position just past the last line.
+     *
+     * @return The size of the index file.
+     */
+    int end() {
+        return size;
+    }
+
+    /** Folds a word the same way the headwords of this index were folded before being sorted: case is ignored and,
+     * unless the database has the allchars flag, characters other than letters, digits and spaces are skipped.
+     *
+     * @param word The word to be folded.
+     * @return The folded word.
+     */
+    String fold(CharSequence word) {
+        StringBuilder builder = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (allChars || Character.isLetterOrDigit(c) || c == ' ')
+                builder.append(Character.toLowerCase(c));
+        }
+        return builder.toString();
+    }
+
+    /** Finds the first line whose folded headword is not smaller than a folded key.
+     *
+     * @param key A key folded with fold.
+     * @return The position of the line, or end() if every headword is smaller.
+     */
+    int lowerBound(String key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int line = lineStart((low + high) >>> 1, low);
+            if (compare(line, key, false) < 0)
+                low = next(line);
+            else
+                high = line;
+        }
+        return low;
+    }
+
+    /** Returns the position of the line following another one.
+     *
+     * @param line The position of a line.
+     * @return The position of the next line, or end() if this was the last one.
+     */
+    int next(int line) {
+        int i = line;
+        while (i < size && buffer.get(i) != '\n')
+            i++;
+        return i < size ? i + 1 : size;
+    }
+
+    /** Compares the folded headword of a line with a folded key.
+     *
+     * @param line The position of the line.
+     * @param key A key folded with fold.
+     * @param prefix true if a headword that starts with the key is considered equal to it.
+     * @return A negative number, zero or a positive number if the headword is smaller, equal or greater than the key.
+     */
+    int compare(int line, String key, boolean prefix) {
+        int k = 0;
+        for (int i = line; i < size; i++) {
+            int b = buffer.get(i) & 0xff;
+            if (b == '\t' || b == '\n')
+                break;
+            if (b >= 0x80)
+                return compareDecoded(line, key, prefix);
+
+            char c = (char) b;
+            if (!allChars && !isLetterOrDigitOrSpace(c))
+                continue;
+            if (k == key.length())
+                return prefix ? 0 : 1;
+            int diff = Character.toLowerCase(c) - key.charAt(k++);
+            if (diff != 0)
+                return diff;
+        }
+        return k == key.length() ? 0 : -1;
+    }
+
+    private int compareDecoded(int line, String key, boolean prefix) {
+        String folded = fold(decode(line, fieldEnd(line)));
+        if (prefix && folded.startsWith(key))
+            return 0;
+        return folded.compareTo(key);
+    }
+
+    /** Returns the headword of a line as it was written in the index.
+     *
+     * @param line The position of the line.
+     * @return The headword, or the original headword if the line has a fourth field.
+     */
+    String headword(int line) {
+        int original = field(line, 3);
+        if (original >= 0)
+            return decode(original, fieldEnd(original));
+        return decode(line, fieldEnd(line));
+    }
+
+    /** Returns the position of the entry for a line in the .dict file.
+     *
+     * @param line The position of the line.
+     * @return The offset of the entry, in bytes.
+     */
+    long offset(int line) {
+        return base64(field(line, 1));
+    }
+
+    /** Returns the size of the entry for a line in the .dict file.
+     *
+     * @param line The position of the line.
+     * @return The length of the entry, in bytes.
+     */
+    int length(int line) {
+        return (int) base64(field(line, 2));
+    }
+
+    /** Finds the line for a headword written exactly as given, ignoring an original headword field.
+     *
+     * @param headword The headword.
+     * @return The position of the line, or -1 if there is none.
+     */
+    int find(String headword) {
+        String key = fold(headword);
+        for (int line = lowerBound(key); line < size && compare(line, key, false) == 0; line = next(line)) {
+            if (decode(line, fieldEnd(line)).equals(headword))
+                return line;
+        }
+        return -1;
+    }
+
+    private int lineStart(int position, int low) {
+        while (position > low && buffer.get(position - 1) != '\n')
+            position--;
+        return position;
+    }
+
+    private int fieldEnd(int position) {
+        while (position < size) {
+            byte b = buffer.get(position);
+            if (b == '\t' || b == '\n')
+                break;
+            position++;
+        }
+        return position;
+    }
+
+    private int field(int line, int n) {
+        int position = line;
+        for (int i = 0; i < n; i++) {
+            position = fieldEnd(position);
+            if (position >= size || buffer.get(position) != '\t')
+                return -1;
+            position++;
+        }
+        return position;
+    }
+
+    private long base64(int position) {
+        if (position < 0)
+            throw new IllegalStateException("Malformed index line");
+        long value = 0;
+        for (int i = position; i < size; i++) {
+            int b = buffer.get(i);
+            if (b == '\t' || b == '\n' || b == '\r')
+                break;
+            int digit = b >= 0 ? BASE64_VALUES[b] : -1;
+            if (digit < 0)
+                throw new IllegalStateException("Malformed offset in index line");
+            value = (value << 6) | digit;
+        }
+        return value;
+    }
+
+    private String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(start + i);
+        return new String(bytes, charset);
+    }
+
+    private static boolean isLetterOrDigitOrSpace(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == ' ';
+    }
+}
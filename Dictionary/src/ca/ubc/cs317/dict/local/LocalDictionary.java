@@ -0,0 +1,194 @@
+package ca.ubc.cs317.dict.local;
+
+import ca.ubc.cs317.dict.exception.DictConnectionException;
+import ca.ubc.cs317.dict.index.DefinitionSource;
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+import ca.ubc.cs317.dict.model.MatchingStrategy;
+import ca.ubc.cs317.dict.net.DefinitionListener;
+import ca.ubc.cs317.dict.net.DictionaryClient;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Answers DICT queries from dictd database files on the local disk, without a server. Every database in a directory
+ * is made of a sorted .index file, which is mapped into memory and binary searched, and a .dict file holding the
+ * entries, possibly compressed with dictzip. Words are matched the way dictd does, ignoring case and, unless a
+ * database says otherwise, any character that is not a letter, a digit or a space.
+ *
+ * Lookups only read the files, so a LocalDictionary may be used from several threads at the same time.
+ */
+public class LocalDictionary implements DictionaryClient {
+
+    public static final String EXACT = "exact";
+    public static final String PREFIX = "prefix";
+
+    private static final String INDEX_SUFFIX = ".index";
+    private static final String DATA_SUFFIX = ".dict";
+    private static final String DICTZIP_SUFFIX = ".dict.dz";
+
+    private static final String ALL_DATABASES = "*";
+    private static final String FIRST_DATABASE = "!";
+
+    private final Map<String, DictdDatabase> databases = new LinkedHashMap<>();
+    private final Set<MatchingStrategy> strategies = new LinkedHashSet<>();
+
+    /** Opens every dictd database in a directory. A database is a NAME.index file with a matching NAME.dict file, or
+     * a NAME.dict.dz file compressed with dictzip, and is named NAME. Databases are listed in the order of their names.
+     *
+     * @param directory The directory holding the database files.
+     * @throws DictConnectionException If the directory has no database or a database can't be read.
+     */
+    public LocalDictionary(Path directory) throws DictConnectionException {
+        List<Path> indexFiles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + INDEX_SUFFIX)) {
+            for (Path path : stream)
+                indexFiles.add(path);
+        } catch (IOException e) {
+            throw new DictConnectionException(e);
+        }
+        Collections.sort(indexFiles);
+
+        try {
+            for (Path indexFile : indexFiles) {
+                String fileName = indexFile.getFileName().toString();
+                String name = fileName.substring(0, fileName.length() - INDEX_SUFFIX.length());
+                Path dataFile = indexFile.resolveSibling(name + DATA_SUFFIX);
+                Path dictzipFile = indexFile.resolveSibling(name + DICTZIP_SUFFIX);
+                if (Files.isRegularFile(dataFile))
+                    databases.put(name, new DictdDatabase(name, indexFile, new PlainDictFile(dataFile)));
+                else if (Files.isRegularFile(dictzipFile))
+                    databases.put(name, new DictdDatabase(name, indexFile,
+                            new DictZipReader(dictzipFile, DictZipReader.DEFAULT_CACHED_CHUNKS)));
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw new DictConnectionException("Unable to open the databases in " + directory, e);
+        }
+        if (databases.isEmpty())
+            throw new DictConnectionException("No dictd databases in " + directory);
+
+        strategies.add(new MatchingStrategy(EXACT, "Match headwords exactly"));
+        strategies.add(new MatchingStrategy(PREFIX, "Match prefixes"));
+    }
+
+    @Override
+    public Collection<Definition> getDefinitions(String word, Database database) throws DictConnectionException {
+        return getDefinitions(word, database, null);
+    }
+
+    @Override
+    public Collection<Definition> getDefinitions(String word, Database database, DefinitionListener listener) throws DictConnectionException {
+        Collection<Definition> set = new ArrayList<>();
+        try {
+            for (DictdDatabase db : select(database)) {
+                for (Definition definition : db.define(word)) {
+                    set.add(definition);
+                    if (listener != null)
+                        listener.definitionReceived(definition);
+                }
+                if (!set.isEmpty() && database.getName().equals(FIRST_DATABASE))
+                    break;
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new DictConnectionException(e);
+        }
+        return set;
+    }
+
+    @Override
+    public Set<String> getMatchList(String word, MatchingStrategy strategy, Database database) throws DictConnectionException {
+        boolean prefix;
+        if (strategy.getName().equals(PREFIX))
+            prefix = true;
+        else if (strategy.getName().equals(EXACT))
+            prefix = false;
+        else
+            throw new DictConnectionException("Invalid strategy: " + strategy.getName());
+
+        Set<String> set = new LinkedHashSet<>();
+        try {
+            for (DictdDatabase db : select(database)) {
+                db.match(word, prefix, set);
+                if (!set.isEmpty() && database.getName().equals(FIRST_DATABASE))
+                    break;
+            }
+        } catch (RuntimeException e) {
+            throw new DictConnectionException(e);
+        }
+        return set;
+    }
+
+    @Override
+    public Collection<Database> getDatabaseList() {
+        Collection<Database> list = new ArrayList<>();
+        for (DictdDatabase db : databases.values())
+            list.add(db.getDatabase());
+        return list;
+    }
+
+    @Override
+    public Set<MatchingStrategy> getStrategyList() {
+        return new LinkedHashSet<>(strategies);
+    }
+
+    /** Lists the headwords of a database, read from its index file, for instance to build a HeadwordTrie. Unlike a
+     * headword list sent by a server, it is never truncated.
+     *
+     * @param database A database of this dictionary, other than '*' or '!'.
+     * @return Every headword of the database once, except those describing the database.
+     * @throws DictConnectionException If the database doesn't exist or its index can't be read.
+     */
+    public Set<String> getHeadwords(Database database) throws DictConnectionException {
+        DictdDatabase db = databases.get(database.getName());
+        if (db == null)
+            throw new DictConnectionException("Invalid database: " + database.getName());
+        Set<String> headwords = new LinkedHashSet<>();
+        try {
+            db.match("", true, headwords);
+        } catch (RuntimeException e) {
+            throw new DictConnectionException(e);
+        }
+        return headwords;
+    }
+
+    /** Lists the entries of a database, for instance to build a DefinitionIndex over their text.
+     *
+     * @param database A database of this dictionary, other than '*' or '!'.
+     * @return Every entry of the database once, read from its files when requested.
+     * @throws DictConnectionException If the database doesn't exist or its index can't be read.
+     */
+    public DefinitionSource getEntries(Database database) throws DictConnectionException {
+        DictdDatabase db = databases.get(database.getName());
+        if (db == null)
+            throw new DictConnectionException("Invalid database: " + database.getName());
+        try {
+            return db.entries();
+        } catch (RuntimeException e) {
+            throw new DictConnectionException(e);
+        }
+    }
+
+    /** Closes the data files of every database. The index files are unmapped once they are no longer referenced.
+     *
+     */
+    @Override
+    public void close() {
+        for (DictdDatabase db : databases.values())
+            db.close();
+    }
+
+    private Collection<DictdDatabase> select(Database database) throws DictConnectionException {
+        String name = database.getName();
+        if (name.equals(ALL_DATABASES) || name.equals(FIRST_DATABASE))
+            return databases.values();
+        DictdDatabase db = databases.get(name);
+        if (db == null)
+            throw new DictConnectionException("Invalid database: " + name);
+        return Collections.singletonList(db);
+    }
+}
@@ -0,0 +1,33 @@
+package ca.ubc.cs317.dict.local;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * An uncompressed .dict file, read with positional reads so that concurrent lookups don't share a file position.
+ */
+class PlainDictFile implements DictFile {
+
+    private final SharedFileChannel channel;
+
+    PlainDictFile(Path path) throws IOException {
+        channel = new SharedFileChannel(path);
+    }
+
+    @Override
+    public byte[] read(long offset, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, offset + bytes.position()) < 0)
+                throw new EOFException("Entry past the end of the data file");
+        }
+        return bytes.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,69 @@
+package ca.ubc.cs317.dict.local;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only file channel shared by concurrent lookups, which stays usable when one of them is interrupted. A
+ * FileChannel is closed for every thread as soon as a thread reading from it is interrupted, as happens when a
+ * cancelled lookup is still running, so reads are made with the interrupt status cleared and then restored, and the
+ * file is reopened if the channel was closed anyway by an interrupt arriving during a read.
+ */
+class SharedFileChannel implements Closeable {
+
+    private final Path path;
+    private volatile FileChannel channel;
+    private volatile boolean closed;
+
+    SharedFileChannel(Path path) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /** Reads bytes from a position of the file, like FileChannel.read, without being affected by interrupts.
+     *
+     * @param buffer The buffer receiving the bytes.
+     * @param position The position of the first byte read.
+     * @return The number of bytes read, or -1 if the position is at or past the end of the file.
+     * @throws IOException If the file can't be read, or this channel was closed.
+     */
+    int read(ByteBuffer buffer, long position) throws IOException {
+        boolean interrupted = Thread.interrupted();
+        int start = buffer.position();
+        try {
+            while (true) {
+                FileChannel current = channel;
+                try {
+                    return current.read(buffer, position + buffer.position() - start);
+                } catch (ClosedChannelException e) {
+                    if (closed)
+                        throw e;
+                    if (e instanceof ClosedByInterruptException)
+                        interrupted |= Thread.interrupted();
+                    reopen(current);
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    // Only the first thread finding the channel closed opens it again
+    private synchronized void reopen(FileChannel failed) throws IOException {
+        if (channel == failed && !closed)
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+}
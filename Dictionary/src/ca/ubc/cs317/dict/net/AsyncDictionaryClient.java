@@ -0,0 +1,261 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.exception.DictConnectionException;
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+import ca.ubc.cs317.dict.model.MatchingStrategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs lookups on a DictionaryConnectionPool from a bounded set of worker threads and returns CompletableFutures,
+ * so callers can compose many concurrent lookups without blocking their own threads. Cancelling a future that has not
+ * started drops the lookup before anything is sent; cancelling a lookup that is waiting for its reply aborts the
+ * socket it is using, so the worker is released right away and the pool replaces the connection.
+ *
+ * Definitions are looked up in the bulk lane of the pool, and everything else in its interactive lane, so that matches
+ * keep being answered quickly while large definitions are being retrieved. Each lane has its own workers, since a
+ * worker waiting for a bulk connection would otherwise keep an interactive lookup queued behind it.
+ */
+public class AsyncDictionaryClient {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final DictionaryConnectionPool pool;
+    private final ExecutorService interactiveExecutor;
+    private final ExecutorService bulkExecutor;
+    private final boolean ownsExecutors;
+
+    /** Creates an asynchronous client using its own executors, each with a bounded queue of pending lookups: one with a
+     * worker per pooled connection for interactive lookups, and one with a worker per bulk connection for definitions.
+     *
+     * @param pool The pool used to run the lookups.
+     */
+    public AsyncDictionaryClient(DictionaryConnectionPool pool) {
+        this(pool, newExecutor("dict-lookup-", pool.getMaxConnections(), DEFAULT_QUEUE_CAPACITY),
+                newExecutor("dict-bulk-", pool.getMaxBulkConnections(), DEFAULT_QUEUE_CAPACITY), true);
+    }
+
+    /** Creates an asynchronous client running its lookups on existing executors, which are not shut down when this
+     * client is closed. The bulk executor should not have more workers than the pool has bulk connections, since the
+     * others would only wait for one.
+     *
+     * @param pool The pool used to run the lookups.
+     * @param interactiveExecutor The executor running matches and other short lookups.
+     * @param bulkExecutor The executor running definition lookups.
+     */
+    public AsyncDictionaryClient(DictionaryConnectionPool pool, ExecutorService interactiveExecutor,
+                                 ExecutorService bulkExecutor) {
+        this(pool, interactiveExecutor, bulkExecutor, false);
+    }
+
+    private AsyncDictionaryClient(DictionaryConnectionPool pool, ExecutorService interactiveExecutor,
+                                  ExecutorService bulkExecutor, boolean ownsExecutors) {
+        this.pool = pool;
+        this.interactiveExecutor = interactiveExecutor;
+        this.bulkExecutor = bulkExecutor;
+        this.ownsExecutors = ownsExecutors;
+    }
+
+    public DictionaryConnectionPool getPool() {
+        return pool;
+    }
+
+    /** Requests all definitions for a specific word.
+     *
+     * @param word The word whose definition is to be retrieved.
+     * @param database The database to be used to retrieve the definition, which may be one of the special databases
+     *                 '*' or '!'.
+     * @return A future completed with the definitions returned by the server.
+     */
+    public CompletableFuture<Collection<Definition>> defineAsync(final String word, final Database database) {
+        return submit(new DictionaryConnectionPool.Operation<Collection<Definition>>() {
+            @Override
+            public Collection<Definition> execute(DictionaryConnection connection) throws DictConnectionException {
+                return connection.getDefinitions(word, database);
+            }
+        }, false);
+    }
+
+    /** Requests all definitions for a specific word, handing each definition to a listener as soon as it has been
+     * received. The listener is called on the worker thread running the lookup.
+     *
+     * @param word The word whose definition is to be retrieved.
+     * @param database The database to be used to retrieve the definition, which may be one of the special databases
+     *                 '*' or '!'.
+     * @param listener The listener notified of each definition as it arrives.
+     * @return A future completed with all definitions returned by the server.
+     */
+    public CompletableFuture<Collection<Definition>> defineAsync(final String word, final Database database,
+                                                                 final DefinitionListener listener) {
+        return submit(new DictionaryConnectionPool.Operation<Collection<Definition>>() {
+            @Override
+            public Collection<Definition> execute(DictionaryConnection connection) throws DictConnectionException {
+                return connection.getDefinitions(word, database, listener);
+            }
+        }, false);
+    }
+
+    /** Requests the list of matches for a specific word pattern.
+     *
+     * @param word     The word whose definition is to be retrieved.
+     * @param strategy The strategy to be used to retrieve the list of matches (e.g., prefix, exact).
+     * @param database The database to be used to retrieve the matches, which may be one of the special databases
+     *                 '*' or '!'.
+     * @return A future completed with the matches returned by the server.
+     */
+    public CompletableFuture<Set<String>> matchAsync(final String word, final MatchingStrategy strategy,
+                                                     final Database database) {
+        return submit(new DictionaryConnectionPool.Operation<Set<String>>() {
+            @Override
+            public Set<String> execute(DictionaryConnection connection) throws DictConnectionException {
+                return connection.getMatchList(word, strategy, database);
+            }
+        });
+    }
+
+    /** Requests the list of all valid databases used in the server.
+     *
+     * @return A future completed with the databases supported by the server.
+     */
+    public CompletableFuture<Collection<Database>> databaseListAsync() {
+        return submit(new DictionaryConnectionPool.Operation<Collection<Database>>() {
+            @Override
+            public Collection<Database> execute(DictionaryConnection connection) throws DictConnectionException {
+                return connection.getDatabaseList();
+            }
+        });
+    }
+
+    /** Requests the list of all valid matching strategies supported by the server.
+     *
+     * @return A future completed with the strategies supported by the server.
+     */
+    public CompletableFuture<Set<MatchingStrategy>> strategyListAsync() {
+        return submit(new DictionaryConnectionPool.Operation<Set<MatchingStrategy>>() {
+            @Override
+            public Set<MatchingStrategy> execute(DictionaryConnection connection) throws DictConnectionException {
+                return connection.getStrategyList();
+            }
+        });
+    }
+
+    /** Stops accepting lookups and shuts down the executors if they were created by this client. Lookups still queued
+     * on them are not run and their futures fail. The pool is not closed.
+     *
+     */
+    public void close() {
+        if (ownsExecutors) {
+            List<Runnable> queued = new ArrayList<>(interactiveExecutor.shutdownNow());
+            queued.addAll(bulkExecutor.shutdownNow());
+            for (Runnable task : queued) {
+                if (task instanceof Lookup)
+                    ((Lookup<?>) task).completeExceptionally(new DictConnectionException("Client closed"));
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(DictionaryConnectionPool.Operation<T> operation) {
+        return submit(operation, true);
+    }
+
+    private <T> CompletableFuture<T> submit(DictionaryConnectionPool.Operation<T> operation, boolean interactive) {
+        Lookup<T> lookup = new Lookup<>(operation, interactive);
+        try {
+            (interactive ? interactiveExecutor : bulkExecutor).execute(lookup);
+        } catch (RejectedExecutionException e) {
+            lookup.completeExceptionally(new DictConnectionException("Too many pending lookups", e));
+        }
+        return lookup;
+    }
+
+    private static ExecutorService newExecutor(final String name, int threads, int queueCapacity) {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * A lookup waiting to run, or running, on a worker thread. It keeps track of the connection it is using so that
+     * cancelling it can abort the socket.
+     */
+    private class Lookup<T> extends CompletableFuture<T> implements Runnable {
+
+        private final DictionaryConnectionPool.Operation<T> operation;
+        private final boolean interactive;
+        private DictionaryConnection connection;
+        private boolean aborted;
+
+        private Lookup(DictionaryConnectionPool.Operation<T> operation, boolean interactive) {
+            this.operation = operation;
+            this.interactive = interactive;
+        }
+
+        @Override
+        public void run() {
+            // Cancelled before it started, don't send anything
+            if (isDone())
+                return;
+
+            DictionaryConnection borrowed;
+            try {
+                borrowed = pool.borrow(interactive);
+            } catch (DictConnectionException e) {
+                completeExceptionally(e);
+                return;
+            }
+
+            synchronized (this) {
+                connection = borrowed;
+            }
+            boolean healthy = false;
+            try {
+                if (!isDone()) {
+                    T result = operation.execute(borrowed);
+                    healthy = true;
+                    complete(result);
+                } else {
+                    healthy = true;
+                }
+            } catch (DictConnectionException e) {
+                completeExceptionally(e);
+            } catch (RuntimeException e) {
+                completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    connection = null;
+                    healthy &= !aborted;
+                }
+                pool.release(borrowed, healthy);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                synchronized (this) {
+                    if (connection != null) {
+                        aborted = true;
+                        connection.abort();
+                    }
+                }
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.util.AtomTokenizer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parses the reply to a SHOW DB command: 110 followed by a text block with one "name description" line per database
+ * and a final 250.
+ */
+class DatabaseListReplyParser extends ReplyParser<Map<String, Database>> {
+
+    private static final int STATUS = 0, LIST = 1, COMPLETION = 2;
+
+    private final Map<String, Database> databaseMap = new LinkedHashMap<>();
+    private final AtomTokenizer tokenizer = new AtomTokenizer();
+
+    private int state = STATUS;
+
+    @Override
+    boolean onLine(CharSequence line) {
+        switch (state) {
+            case STATUS:
+                if (!hasCode(line, "110")) {
+                    fail("Unexpected reply to SHOW DB: " + line);
+                    return true;
+                }
+                state = LIST;
+                return false;
+
+            case LIST:
+                if (isTerminator(line)) {
+                    state = COMPLETION;
+                } else if (tokenizer.reset(line, textStart(line)).next()) {
+                    String name = tokenizer.atom();
+                    String description = tokenizer.next() ? tokenizer.atom() : "";
+                    databaseMap.put(name, new Database(name, description));
+                }
+                return false;
+
+            default:
+                // Empty the buffer
+                return true;
+        }
+    }
+
+    @Override
+    Map<String, Database> result() {
+        return databaseMap;
+    }
+}
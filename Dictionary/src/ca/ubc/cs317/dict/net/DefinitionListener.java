@@ -0,0 +1,17 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.model.Definition;
+
+/**
+ * Receives the definitions of a DEFINE reply one at a time, as soon as the text block of each definition has been read
+ * and before the rest of the reply arrives.
+ */
+public interface DefinitionListener {
+
+    /** Called once for every definition, in the order the server sent them, on the thread reading the reply. The
+     * listener should return quickly and must not throw, since the connection is still in the middle of the reply.
+     *
+     * @param definition The definition that was just read.
+     */
+    void definitionReceived(Definition definition);
+}
@@ -0,0 +1,89 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+import ca.ubc.cs317.dict.util.AtomTokenizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Parses the reply to a DEFINE command: either 552 (no match), or 150 followed by one 151 text block per definition
+ * and a final 250.
+ */
+class DefinitionReplyParser extends ReplyParser<Collection<Definition>> {
+
+    private static final int STATUS = 0, HEADERS = 1, BODY = 2;
+
+    private final String word;
+    private final DefinitionListener listener;
+    private final Collection<Definition> set = new ArrayList<>();
+    private final AtomTokenizer tokenizer = new AtomTokenizer();
+
+    private int state = STATUS;
+    private Definition current;
+    private final StringBuilder body = new StringBuilder();
+
+    DefinitionReplyParser(String word) {
+        this(word, null);
+    }
+
+    DefinitionReplyParser(String word, DefinitionListener listener) {
+        this.word = word;
+        this.listener = listener;
+    }
+
+    @Override
+    boolean onLine(CharSequence line) {
+        switch (state) {
+            case STATUS:
+                // If no definitions were found in any databases, return an empty set
+                if (hasCode(line, "552"))
+                    return true;
+                if (!hasCode(line, "150")) {
+                    fail("Unexpected reply to DEFINE: " + line);
+                    return true;
+                }
+                state = HEADERS;
+                return false;
+
+            case HEADERS:
+                // Check if there are no more definitions left to parse
+                if (hasCode(line, "250"))
+                    return true;
+
+                // Check if beginning of a definition, create a new definition
+                if (hasCode(line, "151")) {
+                    // 151 "word" database "description"
+                    if (!tokenizer.reset(line).skip(3))
+                        fail("Malformed definition header: " + line);
+                    String name = tokenizer.atom();
+                    String description = tokenizer.next() ? tokenizer.atom() : "";
+                    current = new Definition(word, new Database(name, description));
+                    body.setLength(0);
+                    state = BODY;
+                }
+                return false;
+
+            default:
+                if (isTerminator(line)) {
+                    current.setDefinition(body.toString());
+                    set.add(current);
+                    if (listener != null)
+                        listener.definitionReceived(current);
+                    current = null;
+                    state = HEADERS;
+                } else {
+                    // Append the line to the buffer, which is only copied once the whole definition is read
+                    ReplyLineDecoder.appendTo(body, line, textStart(line));
+                    body.append("\r\n");
+                }
+                return false;
+        }
+    }
+
+    @Override
+    Collection<Definition> result() {
+        return set;
+    }
+}
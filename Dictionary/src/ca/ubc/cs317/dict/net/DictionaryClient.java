@@ -0,0 +1,71 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.exception.DictConnectionException;
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+import ca.ubc.cs317.dict.model.MatchingStrategy;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Operations supported by anything that can answer DICT queries, such as a single DictionaryConnection or a pool of
+ * connections to the same server.
+ */
+public interface DictionaryClient {
+
+    /** Requests and retrieves all definitions for a specific word.
+     *
+     * @param word The word whose definition is to be retrieved.
+     * @param database The database to be used to retrieve the definition. A special database may be specified,
+     *                 indicating either that all regular databases should be used (database name '*'), or that only
+     *                 definitions in the first database that has a definition for the word should be used
+     *                 (database '!').
+     * @return A collection of Definition objects containing all definitions returned by the server.
+     * @throws DictConnectionException If the connection was interrupted or the messages don't match their expected value.
+     */
+    Collection<Definition> getDefinitions(String word, Database database) throws DictConnectionException;
+
+    /** Requests and retrieves all definitions for a specific word, handing each definition to a listener as soon as it
+     * has been received, before the rest of the reply is read.
+     *
+     * @param word The word whose definition is to be retrieved.
+     * @param database The database to be used to retrieve the definition, which may be one of the special databases
+     *                 '*' or '!'.
+     * @param listener The listener notified of each definition as it arrives.
+     * @return A collection of Definition objects containing all definitions returned by the server.
+     * @throws DictConnectionException If the connection was interrupted or the messages don't match their expected value.
+     */
+    Collection<Definition> getDefinitions(String word, Database database, DefinitionListener listener) throws DictConnectionException;
+
+    /** Requests and retrieves a list of matches for a specific word pattern.
+     *
+     * @param word     The word whose definition is to be retrieved.
+     * @param strategy The strategy to be used to retrieve the list of matches (e.g., prefix, exact).
+     * @param database The database to be used to retrieve the definition. A special database may be specified,
+     *                 indicating either that all regular databases should be used (database name '*'), or that only
+     *                 matches in the first database that has a match for the word should be used (database '!').
+     * @return A set of word matches returned by the server.
+     * @throws DictConnectionException If the connection was interrupted or the messages don't match their expected value.
+     */
+    Set<String> getMatchList(String word, MatchingStrategy strategy, Database database) throws DictConnectionException;
+
+    /** Requests and retrieves a list of all valid databases used in the server.
+     *
+     * @return A collection of Database objects supported by the server.
+     * @throws DictConnectionException If the connection was interrupted or the messages don't match their expected value.
+     */
+    Collection<Database> getDatabaseList() throws DictConnectionException;
+
+    /** Requests and retrieves a list of all valid matching strategies supported by the server.
+     *
+     * @return A set of MatchingStrategy objects supported by the server.
+     * @throws DictConnectionException If the connection was interrupted or the messages don't match their expected value.
+     */
+    Set<MatchingStrategy> getStrategyList() throws DictConnectionException;
+
+    /** Releases every resource held by this client. Any exception raised while closing is ignored.
+     *
+     */
+    void close();
+}
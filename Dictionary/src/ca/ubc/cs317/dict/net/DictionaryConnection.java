@@ -4,23 +4,25 @@ import ca.ubc.cs317.dict.exception.DictConnectionException;
 import ca.ubc.cs317.dict.model.Database;
 import ca.ubc.cs317.dict.model.Definition;
 import ca.ubc.cs317.dict.model.MatchingStrategy;
-import ca.ubc.cs317.dict.util.DictStringParser;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
  * Created by Jonatan on 2017-09-09.
  */
-public class DictionaryConnection {
+public class DictionaryConnection implements DictionaryClient {
 
     private static final int DEFAULT_PORT = 2628;
+    private static final int PIPELINE_WINDOW = 16 * 1024;
 
     private Socket socket;
-    private BufferedReader input;
+    private ReplyLineDecoder input;
     private PrintWriter output;
 
     private Map<String, Database> databaseMap = new LinkedHashMap<String, Database>();
@@ -38,10 +40,9 @@ public class DictionaryConnection {
             try {
                     this.socket = new Socket(host, port);
                     this.output =
-                            new PrintWriter(socket.getOutputStream(), true);
-                    this.input =
-                            new BufferedReader(
-                                    new InputStreamReader((socket.getInputStream())));
+                            new PrintWriter(new OutputStreamWriter(
+                                    new BufferedOutputStream(socket.getOutputStream()), StandardCharsets.UTF_8), true);
+                    this.input = new ReplyLineDecoder(socket.getInputStream());
 
                     // Gets the status code of the dictionary command
                     Status result = Status.readStatus(input);
@@ -81,6 +82,32 @@ public class DictionaryConnection {
     }
 
 
+    /** Closes the socket immediately, without sending QUIT and without waiting for a command that may be in progress
+     * on another thread. That command fails with a DictConnectionException, and the connection can't be used anymore.
+     *
+     */
+    public void abort() {
+        try {
+            socket.close();
+        } catch (Exception e) {
+        }
+    }
+
+    /** Checks whether the server is still answering on this connection by sending a STATUS command and reading its
+     * reply. This function never throws; any failure is reported as a dead connection.
+     *
+     * @return true if the server replied with the expected 210 status, false otherwise.
+     */
+    public synchronized boolean isAlive() {
+        try {
+            output.write("STATUS \r\n");
+            output.flush();
+            return Status.readStatus(input).getStatusCode() == 210;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     /** Requests and retrieves all definitions for a specific word.
      *
      * @param word The word whose definition is to be retrieved.
@@ -92,54 +119,23 @@ public class DictionaryConnection {
      * @throws DictConnectionException If the connection was interrupted or the messages don't match their expected value.
      */
     public synchronized Collection<Definition> getDefinitions(String word, Database database) throws DictConnectionException {
-        Collection<Definition> set = new ArrayList<>();
-        getDatabaseList(); // Ensure the list of databases has been populated
-
-        try {
-            // Store a word or a phrase to be read by the server
-            String userInput = '"' + word + '"';
-
-            // Send a query to the server
-            output.write("DEFINE " + database.getName() + " " + userInput + " "+ "\r\n");
-            output.flush();
-            String result = input.readLine();
-            String[] defList = DictStringParser.splitAtoms(result);
-
-            // If no definitions were found in any databases, return an empty set
-            if(defList[0].equals("552")) {
-                return set;
-            }
-
-            // Check if the proper dictionary commands are returned, then parse for definitions of given word
-            if(defList[0].equals("150")) {
-                // Check if there are no more definitions left to parse
-                while (!(result = input.readLine()).substring(0,3).equals("250")){
-                    String[] validLine = DictStringParser.splitAtoms(result);
-
-                    // Check if beginning of a definition, create a new definition
-                    if(validLine[0].equals("151")) {
-                        Database db = new Database(validLine[2],validLine[3]);
-                        Definition newDef = new Definition(word, db);
-                        String def = "";
-
-                        // Append entire definition into the empty string
-                        while(!(result = input.readLine()).equals(".")) {
-                            def = def.concat(result + "\r\n");
-                        }
-
-                        newDef.setDefinition(def);
-                        set.add(newDef);
-                    }
-                }
-                return set;
+        return getDefinitions(word, database, null);
+    }
 
-            } else {
-                throw new DictConnectionException();
-            }
+    /** Requests and retrieves all definitions for a specific word, handing each definition to a listener as soon as it
+     * has been received, before the rest of the reply is read.
+     *
+     * @param word The word whose definition is to be retrieved.
+     * @param database The database to be used to retrieve the definition, which may be one of the special databases
+     *                 '*' or '!'.
+     * @param listener The listener notified of each definition as it arrives, or null if none is needed.
+     * @return A collection of Definition objects containing all definitions returned by the server.
+     * @throws DictConnectionException If the connection was interrupted or the messages don't match their expected value.
+     */
+    public synchronized Collection<Definition> getDefinitions(String word, Database database, DefinitionListener listener) throws DictConnectionException {
+        getDatabaseList(); // Ensure the list of databases has been populated
 
-        } catch (Exception e) {
-            throw new DictConnectionException();
-        }
+        return execute(defineCommand(word, database), new DefinitionReplyParser(word, listener));
     }
 
     /** Requests and retrieves a list of matches for a specific word pattern.
@@ -153,40 +149,7 @@ public class DictionaryConnection {
      * @throws DictConnectionException If the connection was interrupted or the messages don't match their expected value.
      */
     public synchronized Set<String> getMatchList(String word, MatchingStrategy strategy, Database database) throws DictConnectionException {
-        Set<String> set = new LinkedHashSet<>();
-
-        try {
-            // Store a word or a phrase to be read by the server
-            String userInput = '"' + word + '"';
-
-            // Send a query to the server
-            output.write("MATCH " + database.getName() + " " + strategy.getName() + " " + userInput + " " + "\r\n");
-            output.flush();
-            String result = input.readLine();
-            String[] matchList = DictStringParser.splitAtoms(result);
-
-            // If no definitions were found in any databases, return an empty set
-            if (matchList[0].equals("552")){
-                return set;
-            }
-            //  Parse a matching strategy
-            if(matchList[0].equals("152")) {
-                while(!(result = input.readLine()).equals(".")) {
-                    String[] toParse = DictStringParser.splitAtoms(result);
-                    set.add(toParse[1]);
-                }
-
-                // Empty the buffer
-                result = input.readLine();
-                return set;
-
-            } else {
-                throw new DictConnectionException();
-            }
-
-        } catch (Exception e) {
-            throw new DictConnectionException();
-        }
+        return execute(matchCommand(word, strategy, database), new MatchReplyParser());
     }
 
     /** Requests and retrieves a list of all valid databases used in the server. In addition to returning the list, this
@@ -200,33 +163,8 @@ public class DictionaryConnection {
 
         if (!databaseMap.isEmpty()) return databaseMap.values();
 
-
-        try{
-            // Send a query to the server
-            output.write("SHOW DB \r\n");
-            output.flush();
-            String result = input.readLine();
-            String[] dictList = DictStringParser.splitAtoms(result);
-
-            // Check if valid dictionary command, then parse for a database
-            if(dictList[0].equals("110")) {
-                while(!(result = input.readLine()).equals(".")) {
-                    String[] toParse = DictStringParser.splitAtoms(result);
-                    Database db = new Database(toParse[0], toParse[1]);
-                    databaseMap.put(toParse[0],db);
-                }
-
-                // Empty the buffer
-                result = input.readLine();
-                return databaseMap.values();
-
-            } else {
-                throw new DictConnectionException();
-            }
-
-        } catch(Exception e) {
-            throw new DictConnectionException(e.getMessage());
-        }
+        databaseMap.putAll(execute("SHOW DB", new DatabaseListReplyParser()));
+        return databaseMap.values();
     }
 
     /** Requests and retrieves a list of all valid matching strategies supported by the server.
@@ -235,33 +173,91 @@ public class DictionaryConnection {
      * @throws DictConnectionException If the connection was interrupted or the messages don't match their expected value.
      */
     public synchronized Set<MatchingStrategy> getStrategyList() throws DictConnectionException {
-        Set<MatchingStrategy> set = new LinkedHashSet<>();
+        return execute("SHOW STRAT", new StrategyListReplyParser());
+    }
+
+    /** Creates a pipeline on this connection. Commands queued on the pipeline are sent back-to-back when it is flushed,
+     * and their replies are read in the same order.
+     *
+     * @return A new, empty pipeline.
+     */
+    public DictionaryPipeline pipeline() {
+        return new DictionaryPipeline(this);
+    }
+
+    static String defineCommand(String word, Database database) {
+        // Store a word or a phrase to be read by the server
+        return "DEFINE " + database.getName() + " \"" + word + "\"";
+    }
+
+    static String matchCommand(String word, MatchingStrategy strategy, Database database) {
+        return "MATCH " + database.getName() + " " + strategy.getName() + " \"" + word + "\"";
+    }
 
+    /** Sends every queued command of a pipeline and reads their replies in order, completing each command's future as
+     * soon as its reply has been read. Commands keep being written while replies are outstanding, as long as the
+     * commands sent but not yet answered take at most PIPELINE_WINDOW bytes: each reply read frees its command's share
+     * of the window, which is refilled before the next reply is read. Neither side can then block on a full socket
+     * buffer while the other is also writing.
+     *
+     * @param commands The commands to be sent, in order.
+     * @throws DictConnectionException If the connection was interrupted. Commands whose reply was not read are
+     * completed exceptionally.
+     */
+    synchronized void executePipelined(List<DictionaryPipeline.Command<?>> commands) throws DictConnectionException {
+        int sent = 0;
+        int outstanding = 0;
         try {
-            // Send a query to the server
-            output.write("SHOW STRAT \r\n");
-            output.flush();
-            String result = input.readLine();
-            String[] Stratlist = DictStringParser.splitAtoms(result);
-
-            // Check if valid dictionary command, then parse for a strategy
-            if(Stratlist[0].equals("111")) {
-                while(!(result = input.readLine()).equals(".")) {
-                    String[] toParse = DictStringParser.splitAtoms(result);
-                    MatchingStrategy ms = new MatchingStrategy(toParse[0],toParse[1]);
-                    set.add(ms);
+            StringBuilder pending = new StringBuilder();
+            for (int read = 0; read < commands.size(); read++) {
+                // A command larger than the window is still sent once nothing else is outstanding
+                pending.setLength(0);
+                while (sent < commands.size()) {
+                    int length = commands.get(sent).getCommand().length() + 2;
+                    if (sent > read && outstanding + length > PIPELINE_WINDOW)
+                        break;
+                    pending.append(commands.get(sent++).getCommand()).append("\r\n");
+                    outstanding += length;
                 }
+                if (pending.length() > 0)
+                    send(pending);
 
-                // Empty the buffer
-                result = input.readLine();
-                return set;
-
-            } else {
-                throw new DictConnectionException();
+                DictionaryPipeline.Command<?> command = commands.get(read);
+                readReply(command.getParser());
+                outstanding -= command.getCommand().length() + 2;
+                command.complete();
             }
+        } catch (DictConnectionException e) {
+            for (DictionaryPipeline.Command<?> command : commands)
+                command.abort(e);
+            throw e;
+        }
+    }
 
-        } catch (Exception e) {
-            throw new DictConnectionException();
+    private <T> T execute(String command, ReplyParser<T> parser) throws DictConnectionException {
+        send(command + "\r\n");
+        readReply(parser);
+        return parser.getResult();
+    }
+
+    private void send(CharSequence commands) throws DictConnectionException {
+        // Send a query to the server
+        output.append(commands);
+        output.flush();
+        if (output.checkError())
+            throw new DictConnectionException("Could not send command to the server");
+    }
+
+    private void readReply(ReplyParser<?> parser) throws DictConnectionException {
+        try {
+            CharSequence result;
+            do {
+                result = input.readLine();
+                if (result == null)
+                    throw new DictConnectionException("Connection closed by the server");
+            } while (!parser.onLine(result));
+        } catch (IOException | RuntimeException e) {
+            throw new DictConnectionException(e);
         }
     }
 }
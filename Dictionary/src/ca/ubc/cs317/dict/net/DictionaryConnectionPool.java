@@ -0,0 +1,499 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.exception.DictConnectionException;
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+import ca.ubc.cs317.dict.model.MatchingStrategy;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps a set of DictionaryConnection objects to the same DICT server and routes each request to a connection that is
+ * not in use, so that concurrent callers no longer wait on each other's replies. Connections are handed out in the
+ * order callers asked for them, idle connections above the minimum are closed after a timeout, and connections that
+ * were idle for a while are checked with a STATUS command before being reused.
+ *
+ * Requests are sent in one of two lanes. The interactive lane is meant for short requests someone is waiting for, such
+ * as the MATCH requests of suggestions, and the bulk lane for requests with large replies, such as DEFINE requests. A
+ * connection is kept out of reach of the bulk lane, so that interactive requests never wait behind a large reply as
+ * long as the pool has more than one connection, and interactive callers waiting for a connection are served first.
+ */
+public class DictionaryConnectionPool implements DictionaryClient {
+
+    private static final int DEFAULT_PORT = 2628;
+
+    private static final int DEFAULT_MIN_CONNECTIONS = 1;
+    private static final int DEFAULT_MAX_CONNECTIONS = 4;
+    private static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
+    private static final long DEFAULT_VALIDATION_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    // Connections the bulk lane can't use, if the pool has more than that
+    private static final int RESERVED_CONNECTIONS = 1;
+
+    private final String host;
+    private final int port;
+    private final int minConnections;
+    private final int maxConnections;
+    private final long idleTimeout;
+    private final long validationInterval;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Deque<Waiter> interactiveWaiters = new ArrayDeque<>();
+    private final Deque<Waiter> bulkWaiters = new ArrayDeque<>();
+    private final Set<DictionaryConnection> bulkConnections =
+            Collections.newSetFromMap(new IdentityHashMap<DictionaryConnection, Boolean>());
+    private final int maxBulkConnections;
+    private int openConnections;
+    private int bulkInUse;
+    private boolean closed;
+
+    /** Creates a pool of connections to a DICT server using an explicit host and port number, and opens the minimum
+     * number of connections right away.
+     *
+     * @param host Name of the host where the DICT server is running
+     * @param port Port number used by the DICT server
+     * @param minConnections Number of connections kept open even when they are idle
+     * @param maxConnections Maximum number of connections open at the same time
+     * @param idleTimeout Time, in milliseconds, after which an idle connection above the minimum is closed
+     * @param validationInterval Time, in milliseconds, a connection may stay idle before it is checked again
+     * @throws DictConnectionException If the initial connections can't be established.
+     */
+    public DictionaryConnectionPool(String host, int port, int minConnections, int maxConnections,
+                                    long idleTimeout, long validationInterval) throws DictConnectionException {
+        if (minConnections < 0 || maxConnections < 1 || minConnections > maxConnections)
+            throw new IllegalArgumentException("Invalid pool size: " + minConnections + ".." + maxConnections);
+
+        this.host = host;
+        this.port = port;
+        this.minConnections = minConnections;
+        this.maxConnections = maxConnections;
+        this.maxBulkConnections = Math.max(1, maxConnections - RESERVED_CONNECTIONS);
+        this.idleTimeout = idleTimeout;
+        this.validationInterval = validationInterval;
+
+        try {
+            for (int i = 0; i < minConnections; i++) {
+                idle.push(new PooledConnection(new DictionaryConnection(host, port)));
+                openConnections++;
+            }
+        } catch (DictConnectionException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /** Creates a pool of connections to a DICT server using an explicit host and port number, with the default pool
+     * sizes and timeouts.
+     *
+     * @param host Name of the host where the DICT server is running
+     * @param port Port number used by the DICT server
+     * @throws DictConnectionException If the initial connection can't be established.
+     */
+    public DictionaryConnectionPool(String host, int port) throws DictConnectionException {
+        this(host, port, DEFAULT_MIN_CONNECTIONS, DEFAULT_MAX_CONNECTIONS,
+                DEFAULT_IDLE_TIMEOUT, DEFAULT_VALIDATION_INTERVAL);
+    }
+
+    /** Creates a pool of connections to a DICT server using an explicit host, with the default DICT port number, pool
+     * sizes and timeouts.
+     *
+     * @param host Name of the host where the DICT server is running
+     * @throws DictConnectionException If the initial connection can't be established.
+     */
+    public DictionaryConnectionPool(String host) throws DictConnectionException {
+        this(host, DEFAULT_PORT);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /** Returns the number of connections the bulk lane may use at the same time.
+     *
+     * @return The number of connections, which leaves the reserved ones to interactive requests when possible.
+     */
+    public int getMaxBulkConnections() {
+        return maxBulkConnections;
+    }
+
+    /** Returns the number of connections currently open, including those in use.
+     *
+     * @return The number of open connections.
+     */
+    public int getOpenConnections() {
+        lock.lock();
+        try {
+            return openConnections;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Closes every idle connection and marks the pool as closed. Connections in use are closed when they are
+     * returned, and callers waiting for a connection receive an exception.
+     *
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            openConnections -= idle.size();
+            idle.clear();
+            for (Waiter waiter : interactiveWaiters)
+                waiter.condition.signal();
+            for (Waiter waiter : bulkWaiters)
+                waiter.condition.signal();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pooled : toClose)
+            pooled.connection.close();
+    }
+
+    @Override
+    public Collection<Definition> getDefinitions(final String word, final Database database) throws DictConnectionException {
+        return execute(new Operation<Collection<Definition>>() {
+            @Override
+            public Collection<Definition> execute(DictionaryConnection connection) throws DictConnectionException {
+                return connection.getDefinitions(word, database);
+            }
+        }, false);
+    }
+
+    @Override
+    public Collection<Definition> getDefinitions(final String word, final Database database,
+                                                 final DefinitionListener listener) throws DictConnectionException {
+        return execute(new Operation<Collection<Definition>>() {
+            @Override
+            public Collection<Definition> execute(DictionaryConnection connection) throws DictConnectionException {
+                return connection.getDefinitions(word, database, listener);
+            }
+        }, false);
+    }
+
+    @Override
+    public Set<String> getMatchList(final String word, final MatchingStrategy strategy, final Database database) throws DictConnectionException {
+        return execute(new Operation<Set<String>>() {
+            @Override
+            public Set<String> execute(DictionaryConnection connection) throws DictConnectionException {
+                return connection.getMatchList(word, strategy, database);
+            }
+        });
+    }
+
+    @Override
+    public Collection<Database> getDatabaseList() throws DictConnectionException {
+        return execute(new Operation<Collection<Database>>() {
+            @Override
+            public Collection<Database> execute(DictionaryConnection connection) throws DictConnectionException {
+                return new ArrayList<>(connection.getDatabaseList());
+            }
+        });
+    }
+
+    @Override
+    public Set<MatchingStrategy> getStrategyList() throws DictConnectionException {
+        return execute(new Operation<Set<MatchingStrategy>>() {
+            @Override
+            public Set<MatchingStrategy> execute(DictionaryConnection connection) throws DictConnectionException {
+                return connection.getStrategyList();
+            }
+        });
+    }
+
+    /** Borrows a connection, runs an operation on it and returns it to the pool. A connection whose operation failed
+     * is assumed to be out of sync with the server and is closed instead of being returned. The operation is run in
+     * the interactive lane.
+     *
+     * An operation whose thread is interrupted before its request is sent is dropped, so a caller that no longer needs
+     * the result can interrupt it to keep it off the server. Once sent, the request completes normally: its reply is
+     * read to the end on the interrupted thread and the connection goes back to the pool in sync with the server,
+     * while other callers use the other connections.
+     *
+     * @param operation The operation to be run.
+     * @return The value returned by the operation.
+     * @throws DictConnectionException If no connection could be obtained, the calling thread was interrupted before
+     * the request was sent, or the operation failed.
+     */
+    public <T> T execute(Operation<T> operation) throws DictConnectionException {
+        return execute(operation, true);
+    }
+
+    /** Borrows a connection in one of the lanes, runs an operation on it and returns it to the pool, like
+     * execute(operation).
+     *
+     * @param operation The operation to be run.
+     * @param interactive true for a short request someone is waiting for, false for a request with a large reply.
+     * @return The value returned by the operation.
+     * @throws DictConnectionException If no connection could be obtained, the calling thread was interrupted before
+     * the request was sent, or the operation failed.
+     */
+    public <T> T execute(Operation<T> operation, boolean interactive) throws DictConnectionException {
+        if (Thread.currentThread().isInterrupted())
+            throw new DictConnectionException("Interrupted before sending the request");
+        DictionaryConnection connection = borrow(interactive);
+        boolean healthy = false;
+        try {
+            if (Thread.currentThread().isInterrupted()) {
+                healthy = true;
+                throw new DictConnectionException("Interrupted before sending the request");
+            }
+            T result = operation.execute(connection);
+            healthy = true;
+            return result;
+        } finally {
+            release(connection, healthy);
+        }
+    }
+
+    /** Takes a connection out of the pool for the interactive lane, like borrow(true).
+     *
+     * @return A connection that is not used by any other caller.
+     * @throws DictConnectionException If the pool is closed, the calling thread is interrupted, or a new connection
+     * can't be established.
+     */
+    public DictionaryConnection borrow() throws DictConnectionException {
+        return borrow(true);
+    }
+
+    /** Takes a connection out of the pool, waiting if every connection is in use and the maximum has been reached, or
+     * if the bulk lane already uses all the connections it may. Interactive callers are served before bulk ones, and
+     * callers of the same lane in the order they asked. The connection must be given back with release.
+     *
+     * @param interactive true for a short request someone is waiting for, false for a request with a large reply.
+     * @return A connection that is not used by any other caller.
+     * @throws DictConnectionException If the pool is closed, the calling thread is interrupted, or a new connection
+     * can't be established.
+     */
+    public DictionaryConnection borrow(boolean interactive) throws DictConnectionException {
+        while (true) {
+            PooledConnection pooled = null;
+            boolean create = false;
+            List<PooledConnection> expired;
+
+            lock.lock();
+            try {
+                expired = evictExpired(System.currentTimeMillis());
+                if (closed)
+                    throw new DictConnectionException("Connection pool is closed");
+
+                // Nobody in the same lane, or in the interactive lane, may be overtaken
+                boolean mayProceed = interactiveWaiters.isEmpty()
+                        && (interactive || bulkWaiters.isEmpty() && bulkInUse < maxBulkConnections);
+                if (mayProceed && !idle.isEmpty()) {
+                    pooled = idle.pop();
+                    if (!interactive)
+                        bulkInUse++;
+                } else if (mayProceed && openConnections < maxConnections) {
+                    openConnections++;
+                    create = true;
+                    if (!interactive)
+                        bulkInUse++;
+                } else {
+                    Waiter waiter = new Waiter(lock.newCondition(), interactive);
+                    Deque<Waiter> waiters = interactive ? interactiveWaiters : bulkWaiters;
+                    waiters.add(waiter);
+                    try {
+                        while (waiter.handOff == null && !waiter.create && !closed)
+                            waiter.condition.await();
+                    } catch (InterruptedException e) {
+                        waiters.remove(waiter);
+                        passOn(waiter);
+                        Thread.currentThread().interrupt();
+                        throw new DictConnectionException("Interrupted while waiting for a connection", e);
+                    }
+                    waiters.remove(waiter);
+                    if (waiter.handOff == null && !waiter.create)
+                        throw new DictConnectionException("Connection pool is closed");
+                    // A bulk waiter was counted in its lane when it was granted a connection or a slot
+                    pooled = waiter.handOff;
+                    create = waiter.create;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            for (PooledConnection old : expired)
+                old.connection.close();
+
+            DictionaryConnection connection = null;
+            if (create) {
+                try {
+                    connection = new DictionaryConnection(host, port);
+                } catch (DictConnectionException e) {
+                    discard(null, !interactive);
+                    throw e;
+                }
+            } else if (System.currentTimeMillis() - pooled.idleSince < validationInterval
+                    || pooled.connection.isAlive()) {
+                connection = pooled.connection;
+            }
+
+            if (connection != null) {
+                if (!interactive) {
+                    lock.lock();
+                    try {
+                        bulkConnections.add(connection);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                return connection;
+            }
+
+            // The connection went stale while idle, drop it and try again
+            discard(pooled.connection, !interactive);
+        }
+    }
+
+    /** Returns a connection obtained with borrow to the pool. If the connection is not healthy it is closed and its
+     * slot is made available for a new connection.
+     *
+     * @param connection The connection being returned.
+     * @param healthy false if the connection is in an unknown state (e.g., an operation failed half-way).
+     */
+    public void release(DictionaryConnection connection, boolean healthy) {
+        boolean bulk;
+        lock.lock();
+        try {
+            bulk = bulkConnections.remove(connection);
+        } finally {
+            lock.unlock();
+        }
+        if (!healthy) {
+            discard(connection, bulk);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (bulk)
+                bulkInUse--;
+            if (!closed) {
+                PooledConnection pooled = new PooledConnection(connection);
+                Waiter waiter = nextWaiter();
+                if (waiter != null) {
+                    waiter.handOff = pooled;
+                    waiter.condition.signal();
+                } else {
+                    idle.push(pooled);
+                }
+                return;
+            }
+            openConnections--;
+        } finally {
+            lock.unlock();
+        }
+        connection.close();
+    }
+
+    private void discard(DictionaryConnection connection, boolean bulk) {
+        lock.lock();
+        try {
+            openConnections--;
+            if (bulk)
+                bulkInUse--;
+            Waiter waiter = closed ? null : nextWaiter();
+            if (waiter != null) {
+                openConnections++;
+                waiter.create = true;
+                waiter.condition.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (connection != null)
+            connection.close();
+    }
+
+    // Must be called with the lock held. Removes the waiter to be served next, if any may be served: the first
+    // interactive waiter, or else the first bulk waiter if the bulk lane has a connection to spare.
+    private Waiter nextWaiter() {
+        Waiter waiter = interactiveWaiters.poll();
+        if (waiter == null && !bulkWaiters.isEmpty() && bulkInUse < maxBulkConnections) {
+            waiter = bulkWaiters.poll();
+            bulkInUse++;
+        }
+        return waiter;
+    }
+
+    // Must be called with the lock held, when a waiter gives up after being granted a connection or a slot
+    private void passOn(Waiter waiter) {
+        if (waiter.handOff == null && !waiter.create)
+            return;
+        if (!waiter.interactive)
+            bulkInUse--;
+
+        Waiter next = nextWaiter();
+        if (waiter.handOff != null) {
+            if (next != null) {
+                next.handOff = waiter.handOff;
+                next.condition.signal();
+            } else {
+                idle.push(waiter.handOff);
+            }
+        } else {
+            if (next != null) {
+                next.create = true;
+                next.condition.signal();
+            } else {
+                openConnections--;
+            }
+        }
+    }
+
+    // Must be called with the lock held. The oldest idle connections are at the end of the deque.
+    private List<PooledConnection> evictExpired(long now) {
+        List<PooledConnection> expired = Collections.emptyList();
+        while (openConnections > minConnections && !idle.isEmpty()
+                && now - idle.peekLast().idleSince > idleTimeout) {
+            if (expired.isEmpty())
+                expired = new ArrayList<>();
+            expired.add(idle.pollLast());
+            openConnections--;
+        }
+        return expired;
+    }
+
+    /** An action to be performed on a connection borrowed from the pool.
+     */
+    public interface Operation<T> {
+        T execute(DictionaryConnection connection) throws DictConnectionException;
+    }
+
+    private static class PooledConnection {
+        private final DictionaryConnection connection;
+        private final long idleSince = System.currentTimeMillis();
+
+        private PooledConnection(DictionaryConnection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private static class Waiter {
+        private final Condition condition;
+        private final boolean interactive;
+        private PooledConnection handOff;
+        private boolean create;
+
+        private Waiter(Condition condition, boolean interactive) {
+            this.condition = condition;
+            this.interactive = interactive;
+        }
+    }
+}
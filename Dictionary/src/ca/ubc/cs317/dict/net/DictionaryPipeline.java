@@ -0,0 +1,123 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.exception.DictConnectionException;
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+import ca.ubc.cs317.dict.model.MatchingStrategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Queues DEFINE and MATCH commands for a single DictionaryConnection and sends them back-to-back, as allowed by
+ * RFC 2229, instead of waiting for each reply before sending the next command. Replies are matched to commands in the
+ * order the commands were queued. A pipeline is not thread-safe and is meant to be filled and flushed by one caller.
+ */
+public class DictionaryPipeline {
+
+    private final DictionaryConnection connection;
+    private List<Command<?>> queued = new ArrayList<>();
+
+    DictionaryPipeline(DictionaryConnection connection) {
+        this.connection = connection;
+    }
+
+    /** Queues a request for all definitions of a specific word.
+     *
+     * @param word The word whose definition is to be retrieved.
+     * @param database The database to be used to retrieve the definition, which may be one of the special databases
+     *                 '*' or '!'.
+     * @return A future completed with the definitions once the pipeline is flushed and the reply is read.
+     */
+    public CompletableFuture<Collection<Definition>> define(String word, Database database) {
+        return queue(DictionaryConnection.defineCommand(word, database), new DefinitionReplyParser(word));
+    }
+
+    /** Queues a request for all definitions of a specific word, handing each definition to a listener as soon as it
+     * has been read.
+     *
+     * @param word The word whose definition is to be retrieved.
+     * @param database The database to be used to retrieve the definition, which may be one of the special databases
+     *                 '*' or '!'.
+     * @param listener The listener notified of each definition as it arrives.
+     * @return A future completed with the definitions once the pipeline is flushed and the reply is read.
+     */
+    public CompletableFuture<Collection<Definition>> define(String word, Database database, DefinitionListener listener) {
+        return queue(DictionaryConnection.defineCommand(word, database), new DefinitionReplyParser(word, listener));
+    }
+
+    /** Queues a request for the list of matches of a specific word pattern.
+     *
+     * @param word     The word whose definition is to be retrieved.
+     * @param strategy The strategy to be used to retrieve the list of matches (e.g., prefix, exact).
+     * @param database The database to be used to retrieve the matches, which may be one of the special databases
+     *                 '*' or '!'.
+     * @return A future completed with the matches once the pipeline is flushed and the reply is read.
+     */
+    public CompletableFuture<Set<String>> match(String word, MatchingStrategy strategy, Database database) {
+        return queue(DictionaryConnection.matchCommand(word, strategy, database), new MatchReplyParser());
+    }
+
+    /** Returns the number of commands queued since the last flush.
+     *
+     * @return The number of queued commands.
+     */
+    public int size() {
+        return queued.size();
+    }
+
+    /** Sends all queued commands and reads their replies. Each future is completed as soon as its own reply has been
+     * read; a command whose reply is a server error is completed exceptionally without affecting the others.
+     *
+     * @throws DictConnectionException If the connection was interrupted. In that case all futures that were not yet
+     * completed are completed exceptionally with the same exception.
+     */
+    public void flush() throws DictConnectionException {
+        if (queued.isEmpty())
+            return;
+
+        List<Command<?>> commands = queued;
+        queued = new ArrayList<>();
+        connection.executePipelined(commands);
+    }
+
+    private <T> CompletableFuture<T> queue(String command, ReplyParser<T> parser) {
+        Command<T> pending = new Command<>(command, parser);
+        queued.add(pending);
+        return pending.future;
+    }
+
+    static class Command<T> {
+        private final String command;
+        private final ReplyParser<T> parser;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Command(String command, ReplyParser<T> parser) {
+            this.command = command;
+            this.parser = parser;
+        }
+
+        String getCommand() {
+            return command;
+        }
+
+        ReplyParser<T> getParser() {
+            return parser;
+        }
+
+        void complete() {
+            try {
+                future.complete(parser.getResult());
+            } catch (DictConnectionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        void abort(DictConnectionException cause) {
+            future.completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.util.AtomTokenizer;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Parses the reply to a MATCH command: either 552 (no match), or 152 followed by a text block with one
+ * "database word" line per match and a final 250.
+ */
+class MatchReplyParser extends ReplyParser<Set<String>> {
+
+    private static final int STATUS = 0, LIST = 1, COMPLETION = 2;
+
+    private final Set<String> set = new LinkedHashSet<>();
+    private final AtomTokenizer tokenizer = new AtomTokenizer();
+
+    private int state = STATUS;
+
+    @Override
+    boolean onLine(CharSequence line) {
+        switch (state) {
+            case STATUS:
+                // If no matches were found in any databases, return an empty set
+                if (hasCode(line, "552"))
+                    return true;
+                if (!hasCode(line, "152")) {
+                    fail("Unexpected reply to MATCH: " + line);
+                    return true;
+                }
+                state = LIST;
+                return false;
+
+            case LIST:
+                if (isTerminator(line))
+                    state = COMPLETION;
+                else if (tokenizer.reset(line, textStart(line)).skip(2))
+                    set.add(tokenizer.atom());
+                else
+                    fail("Malformed match: " + line);
+                return false;
+
+            default:
+                // Empty the buffer
+                return true;
+        }
+    }
+
+    @Override
+    Set<String> result() {
+        return set;
+    }
+}
@@ -0,0 +1,307 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.exception.DictConnectionException;
+import ca.ubc.cs317.dict.model.Database;
+import ca.ubc.cs317.dict.model.Definition;
+import ca.ubc.cs317.dict.model.MatchingStrategy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * A non-blocking connection with a DICT server, driven by a NioDictionaryEngine. Requests may be issued from any
+ * thread; they are written to the socket as soon as possible, without waiting for earlier replies, and their replies
+ * are parsed incrementally on the engine thread as bytes arrive. The blocking methods of DictionaryClient simply wait
+ * for the corresponding asynchronous request.
+ *
+ * Futures are completed, and definition listeners called, on the engine thread. Code run there, including dependent
+ * stages such as thenApply, must not call the blocking methods, which would wait for the engine thread forever; they
+ * fail with a DictConnectionException instead.
+ */
+public class NioDictionaryConnection implements DictionaryClient {
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final NioDictionaryEngine engine;
+    private final SocketChannel channel;
+    private SelectionKey key;
+
+    // Only used by the engine thread
+    private final Deque<Request<?>> inFlight = new ArrayDeque<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(1024);
+    private final ReplyLineDecoder decoder = new ReplyLineDecoder();
+    private boolean closed;
+
+    private volatile Collection<Database> databases;
+
+    NioDictionaryConnection(NioDictionaryEngine engine, SocketChannel channel,
+                            final CompletableFuture<NioDictionaryConnection> ready) {
+        this.engine = engine;
+        this.channel = channel;
+
+        // The welcome message is handled as the reply to a request that was never sent
+        inFlight.add(new Request<>(null, new ReplyParser<NioDictionaryConnection>() {
+            @Override
+            boolean onLine(CharSequence line) {
+                if (hasCode(line, "220"))
+                    return true;
+                // Not a DICT server, so the connection is closed, which also fails the request
+                NioDictionaryConnection.this.fail(new DictConnectionException("Unexpected welcome message: " + line));
+                return false;
+            }
+
+            @Override
+            NioDictionaryConnection result() {
+                return NioDictionaryConnection.this;
+            }
+        }, ready));
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /** Requests all definitions for a specific word.
+     *
+     * @param word The word whose definition is to be retrieved.
+     * @param database The database to be used to retrieve the definition, which may be one of the special databases
+     *                 '*' or '!'.
+     * @return A future completed with the definitions returned by the server.
+     */
+    public CompletableFuture<Collection<Definition>> defineAsync(String word, Database database) {
+        return send(DictionaryConnection.defineCommand(word, database), new DefinitionReplyParser(word));
+    }
+
+    /** Requests all definitions for a specific word, handing each definition to a listener as soon as it has been
+     * parsed. The listener is called on the engine thread, and must neither block nor call the blocking methods.
+     *
+     * @param word The word whose definition is to be retrieved.
+     * @param database The database to be used to retrieve the definition, which may be one of the special databases
+     *                 '*' or '!'.
+     * @param listener The listener notified of each definition as it arrives.
+     * @return A future completed with all definitions returned by the server.
+     */
+    public CompletableFuture<Collection<Definition>> defineAsync(String word, Database database, DefinitionListener listener) {
+        return send(DictionaryConnection.defineCommand(word, database), new DefinitionReplyParser(word, listener));
+    }
+
+    /** Requests the list of matches for a specific word pattern.
+     *
+     * @param word     The word whose definition is to be retrieved.
+     * @param strategy The strategy to be used to retrieve the list of matches (e.g., prefix, exact).
+     * @param database The database to be used to retrieve the matches, which may be one of the special databases
+     *                 '*' or '!'.
+     * @return A future completed with the matches returned by the server.
+     */
+    public CompletableFuture<Set<String>> matchAsync(String word, MatchingStrategy strategy, Database database) {
+        return send(DictionaryConnection.matchCommand(word, strategy, database), new MatchReplyParser());
+    }
+
+    /** Requests the list of all valid databases used in the server. The list is only requested once per connection.
+     *
+     * @return A future completed with the databases supported by the server.
+     */
+    public CompletableFuture<Collection<Database>> databaseListAsync() {
+        if (databases != null)
+            return CompletableFuture.completedFuture(databases);
+
+        return send("SHOW DB", new DatabaseListReplyParser()).thenApply(
+                new Function<Map<String, Database>, Collection<Database>>() {
+                    @Override
+                    public Collection<Database> apply(Map<String, Database> databaseMap) {
+                        databases = Collections.unmodifiableCollection(databaseMap.values());
+                        return databases;
+                    }
+                });
+    }
+
+    /** Requests the list of all valid matching strategies supported by the server.
+     *
+     * @return A future completed with the strategies supported by the server.
+     */
+    public CompletableFuture<Set<MatchingStrategy>> strategyListAsync() {
+        return send("SHOW STRAT", new StrategyListReplyParser());
+    }
+
+    @Override
+    public Collection<Definition> getDefinitions(String word, Database database) throws DictConnectionException {
+        return await(engine, defineAsync(word, database));
+    }
+
+    @Override
+    public Collection<Definition> getDefinitions(String word, Database database, DefinitionListener listener) throws DictConnectionException {
+        return await(engine, defineAsync(word, database, listener));
+    }
+
+    @Override
+    public Set<String> getMatchList(String word, MatchingStrategy strategy, Database database) throws DictConnectionException {
+        return await(engine, matchAsync(word, strategy, database));
+    }
+
+    @Override
+    public Collection<Database> getDatabaseList() throws DictConnectionException {
+        return await(engine, databaseListAsync());
+    }
+
+    @Override
+    public Set<MatchingStrategy> getStrategyList() throws DictConnectionException {
+        return await(engine, strategyListAsync());
+    }
+
+    /** Sends the final QUIT message and closes the connection. Requests still waiting for their reply fail. This
+     * function ignores any exception that may happen while sending the message or closing the connection.
+     *
+     */
+    @Override
+    public void close() {
+        engine.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (closed)
+                    return;
+                try {
+                    channel.write(ByteBuffer.wrap("QUIT\r\n".getBytes(StandardCharsets.US_ASCII)));
+                } catch (IOException ignored) {
+                }
+                fail(new DictConnectionException("Connection closed"));
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> send(String command, ReplyParser<T> parser) {
+        final Request<T> request = new Request<>(command, parser, new CompletableFuture<T>());
+        engine.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (closed || engine.isClosed()) {
+                    request.future.completeExceptionally(new DictConnectionException("Connection closed"));
+                    return;
+                }
+                // A request cancelled before it was written is simply dropped
+                if (request.future.isDone())
+                    return;
+                byte[] bytes = (request.command + "\r\n").getBytes(StandardCharsets.UTF_8);
+                if (writeBuffer.remaining() < bytes.length) {
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(writeBuffer.capacity() * 2,
+                            writeBuffer.position() + bytes.length));
+                    writeBuffer.flip();
+                    larger.put(writeBuffer);
+                    writeBuffer = larger;
+                }
+                writeBuffer.put(bytes);
+                inFlight.add(request);
+                if (key.isValid() && (key.interestOps() & SelectionKey.OP_CONNECT) == 0) {
+                    try {
+                        onWritable();
+                    } catch (IOException e) {
+                        fail(new DictConnectionException(e));
+                    }
+                }
+            }
+        });
+        return request.future;
+    }
+
+    void onConnectable() throws IOException {
+        channel.finishConnect();
+        key.interestOps(writeBuffer.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    void onWritable() throws IOException {
+        writeBuffer.flip();
+        channel.write(writeBuffer);
+        writeBuffer.compact();
+        if (writeBuffer.position() > 0)
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        else
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+
+    void onReadable() throws IOException {
+        readBuffer.clear();
+        int count = channel.read(readBuffer);
+        if (count < 0) {
+            fail(new DictConnectionException("Connection closed by the server"));
+            return;
+        }
+
+        readBuffer.flip();
+        CharSequence line;
+        while (!closed && (line = decoder.nextLine(readBuffer)) != null)
+            onLine(line);
+    }
+
+    private void onLine(CharSequence text) {
+        Request<?> request = inFlight.peek();
+        if (request == null) {
+            fail(new DictConnectionException("Unexpected line from the server: " + text));
+            return;
+        }
+        try {
+            if (request.parser.onLine(text)) {
+                inFlight.poll();
+                request.complete();
+            }
+        } catch (RuntimeException e) {
+            // The reply could not be parsed, so the rest of the stream can't be trusted either
+            fail(new DictConnectionException(e));
+        }
+    }
+
+    void fail(DictConnectionException cause) {
+        closed = true;
+        if (key != null)
+            key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        Request<?> request;
+        while ((request = inFlight.poll()) != null)
+            request.future.completeExceptionally(cause);
+    }
+
+    static <T> T await(NioDictionaryEngine engine, CompletableFuture<T> future) throws DictConnectionException {
+        // The engine thread would be waiting for itself to complete the future
+        if (engine.isEngineThread())
+            throw new DictConnectionException("Blocking call on the dictionary engine thread");
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DictConnectionException("Interrupted while waiting for the server", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DictConnectionException)
+                throw (DictConnectionException) e.getCause();
+            throw new DictConnectionException(e.getCause());
+        }
+    }
+
+    private static class Request<T> {
+        private final String command;
+        private final ReplyParser<T> parser;
+        private final CompletableFuture<T> future;
+
+        private Request(String command, ReplyParser<T> parser, CompletableFuture<T> future) {
+            this.command = command;
+            this.parser = parser;
+            this.future = future;
+        }
+
+        private void complete() {
+            try {
+                future.complete(parser.getResult());
+            } catch (DictConnectionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.exception.DictConnectionException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Drives any number of non-blocking DICT connections from a single event-loop thread. Each connection returned by
+ * connect implements the same operations as DictionaryConnection, but replies are parsed incrementally as bytes
+ * arrive, so no thread is kept blocked waiting for a server.
+ *
+ * The futures returned by the engine and its connections are completed on the event-loop thread, so callbacks attached
+ * to them run there too. They must return quickly and must not call the blocking methods, connect included, which
+ * would wait for the event loop they are holding up. Once the engine is closed, tasks are run by the thread submitting
+ * them, so every future still completes, exceptionally.
+ */
+public class NioDictionaryEngine {
+
+    private static final int DEFAULT_PORT = 2628;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+    // Set once the event loop has ended and the selector is closed
+    private volatile boolean terminated;
+
+    /** Opens the selector and starts the event-loop thread.
+     *
+     * @throws DictConnectionException If the selector can't be opened.
+     */
+    public NioDictionaryEngine() throws DictConnectionException {
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new DictConnectionException(e);
+        }
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "dict-nio");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Starts establishing a new connection with a DICT server using an explicit host and port number.
+     *
+     * @param host Name of the host where the DICT server is running
+     * @param port Port number used by the DICT server
+     * @return A future completed with the connection once the server's welcome message has been received.
+     */
+    public CompletableFuture<NioDictionaryConnection> connectAsync(String host, int port) {
+        final CompletableFuture<NioDictionaryConnection> ready = new CompletableFuture<>();
+        final InetSocketAddress address = new InetSocketAddress(host, port);
+        if (address.isUnresolved()) {
+            ready.completeExceptionally(new DictConnectionException("Unknown host: " + host));
+            return ready;
+        }
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                if (closed) {
+                    ready.completeExceptionally(new DictConnectionException("Dictionary engine closed"));
+                    return;
+                }
+                SocketChannel channel = null;
+                try {
+                    channel = SocketChannel.open();
+                    channel.configureBlocking(false);
+                    NioDictionaryConnection connection = new NioDictionaryConnection(NioDictionaryEngine.this, channel, ready);
+                    int ops = channel.connect(address) ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT;
+                    connection.setKey(channel.register(selector, ops, connection));
+                } catch (IOException e) {
+                    if (channel != null) {
+                        try {
+                            channel.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                    ready.completeExceptionally(new DictConnectionException(e));
+                }
+            }
+        });
+        return ready;
+    }
+
+    /** Establishes a new connection with a DICT server using an explicit host and port number, and waits for the
+     * initial welcome message.
+     *
+     * @param host Name of the host where the DICT server is running
+     * @param port Port number used by the DICT server
+     * @return The new connection.
+     * @throws DictConnectionException If the host does not exist, the connection can't be established, or the messages
+     * don't match their expected value.
+     */
+    public NioDictionaryConnection connect(String host, int port) throws DictConnectionException {
+        return NioDictionaryConnection.await(this, connectAsync(host, port));
+    }
+
+    /** Establishes a new connection with a DICT server using an explicit host, with the default DICT port number, and
+     * waits for the initial welcome message.
+     *
+     * @param host Name of the host where the DICT server is running
+     * @return The new connection.
+     * @throws DictConnectionException If the host does not exist, the connection can't be established, or the messages
+     * don't match their expected value.
+     */
+    public NioDictionaryConnection connect(String host) throws DictConnectionException {
+        return connect(host, DEFAULT_PORT);
+    }
+
+    /** Stops the event loop. Every connection still open is closed and its pending requests fail.
+     *
+     */
+    public void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    /** Runs a task on the event-loop thread. All state of the connections is only touched from that thread, or once the
+     * event loop has ended, by one submitting thread at a time.
+     *
+     * @param task The task to be run.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        // No event loop is left to run it, and every task fails its request once the engine is closed
+        if (terminated)
+            runTasks();
+        else
+            selector.wakeup();
+    }
+
+    boolean isEngineThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    private void runTasks() {
+        synchronized (tasks) {
+            Runnable task;
+            while ((task = tasks.poll()) != null)
+                task.run();
+        }
+    }
+
+    private void loop() {
+        try {
+            while (!closed) {
+                runTasks();
+
+                selector.select();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioDictionaryConnection connection = (NioDictionaryConnection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isConnectable())
+                            connection.onConnectable();
+                        if (key.isValid() && key.isReadable())
+                            connection.onReadable();
+                        if (key.isValid() && key.isWritable())
+                            connection.onWritable();
+                    } catch (IOException | CancelledKeyException e) {
+                        connection.fail(new DictConnectionException(e));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // The selector itself failed, nothing else can be done but to drop every connection
+        } finally {
+            closed = true;
+            List<NioDictionaryConnection> open = new ArrayList<>();
+            for (SelectionKey key : selector.keys())
+                open.add((NioDictionaryConnection) key.attachment());
+            for (NioDictionaryConnection connection : open)
+                connection.fail(new DictConnectionException("Dictionary engine closed"));
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+            // Tasks queued before this point are run here, and later ones by execute
+            terminated = true;
+            runTasks();
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,189 @@
+package ca.ubc.cs317.dict.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits the bytes sent by a DICT server into lines and decodes them as UTF-8, which is the character set used by
+ * RFC 2229. Lines made of ASCII bytes only, which is most of them, are copied straight into a reusable character
+ * buffer; other lines go through a UTF-8 decoder, with malformed sequences replaced. The returned line is a view over
+ * that buffer and is only valid until the next line is requested, so no String is created unless the caller asks for
+ * one.
+ *
+ * The decoder can either pull bytes from an InputStream (readLine) or be pushed bytes from a ByteBuffer (nextLine).
+ */
+class ReplyLineDecoder {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final InputStream in;
+    private final ByteBuffer buffer;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    // Bytes of a line that was split across two reads
+    private byte[] partial = new byte[256];
+    private int partialLength;
+
+    private char[] chars = new char[256];
+    private final Line line = new Line();
+
+    /** Creates a decoder reading from a stream.
+     *
+     * @param in The stream bytes are read from.
+     */
+    ReplyLineDecoder(InputStream in) {
+        this.in = in;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip();
+    }
+
+    /** Creates a decoder that is fed bytes with nextLine.
+     */
+    ReplyLineDecoder() {
+        this.in = null;
+        this.buffer = null;
+    }
+
+    /** Reads the next line from the stream.
+     *
+     * @return The line, without its CR LF terminator, or null if the stream ended. The line is only valid until the
+     * next call.
+     * @throws IOException If the stream could not be read.
+     */
+    CharSequence readLine() throws IOException {
+        while (true) {
+            CharSequence next = nextLine(buffer);
+            if (next != null)
+                return next;
+
+            buffer.clear();
+            int count = in.read(buffer.array(), 0, buffer.capacity());
+            if (count < 0) {
+                buffer.limit(0);
+                return null;
+            }
+            buffer.limit(count);
+        }
+    }
+
+    /** Consumes bytes from a buffer up to the end of the next line. If the buffer doesn't contain a complete line, all
+     * its bytes are consumed and kept until the rest of the line is provided.
+     *
+     * @param source A buffer backed by an array, in read mode.
+     * @return The line, without its CR LF terminator, or null if no complete line was available. The line is only
+     * valid until the next call.
+     */
+    CharSequence nextLine(ByteBuffer source) {
+        byte[] bytes = source.array();
+        int offset = source.arrayOffset();
+        int start = offset + source.position();
+        int end = offset + source.limit();
+
+        int lf = start;
+        while (lf < end && bytes[lf] != '\n')
+            lf++;
+
+        if (lf == end) {
+            append(bytes, start, end - start);
+            source.position(source.limit());
+            return null;
+        }
+        source.position(lf + 1 - offset);
+
+        if (partialLength == 0)
+            return decode(bytes, start, lf - start);
+
+        append(bytes, start, lf - start);
+        int length = partialLength;
+        partialLength = 0;
+        return decode(partial, 0, length);
+    }
+
+    /** Appends part of a line to a builder, copying the characters in bulk when the line was produced by a decoder.
+     *
+     * @param target The builder the characters are appended to.
+     * @param line The line to be copied.
+     * @param start Position of the first character to be copied.
+     */
+    static void appendTo(StringBuilder target, CharSequence line, int start) {
+        if (line instanceof Line)
+            ((Line) line).appendTo(target, start);
+        else
+            target.append(line, start, line.length());
+    }
+
+    private void append(byte[] bytes, int start, int length) {
+        if (partialLength + length > partial.length)
+            partial = Arrays.copyOf(partial, Math.max(partial.length * 2, partialLength + length));
+        System.arraycopy(bytes, start, partial, partialLength, length);
+        partialLength += length;
+    }
+
+    private Line decode(byte[] bytes, int start, int length) {
+        if (length > 0 && bytes[start + length - 1] == '\r')
+            length--;
+        if (chars.length < length)
+            chars = new char[Math.max(chars.length * 2, length)];
+
+        // Fast path for ASCII, falling back to a real decoder at the first byte that isn't
+        int i = 0;
+        while (i < length && bytes[start + i] >= 0) {
+            chars[i] = (char) bytes[start + i];
+            i++;
+        }
+        if (i == length) {
+            line.length = length;
+            return line;
+        }
+
+        CharBuffer out = CharBuffer.wrap(chars, i, chars.length - i);
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(bytes, start + i, length - i), out, true);
+        decoder.flush(out);
+        line.length = out.position();
+        return line;
+    }
+
+    /**
+     * A view over the characters of the last decoded line.
+     */
+    private class Line implements CharSequence {
+        private int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index >= length)
+                throw new IndexOutOfBoundsException("Index " + index + ", length " + length);
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end)
+                throw new IndexOutOfBoundsException("Range " + start + ".." + end + ", length " + length);
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+
+        private void appendTo(StringBuilder target, int start) {
+            target.append(chars, start, length - start);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.exception.DictConnectionException;
+
+/**
+ * Consumes the lines of a single server reply, one at a time, and builds the result of the command that produced it.
+ * Keeping the parsing independent of how lines are read allows the same parser to be used by a blocking connection or
+ * by replies read back-to-back from a pipeline.
+ */
+abstract class ReplyParser<T> {
+
+    private DictConnectionException error;
+
+    /** Processes the next line of the reply.
+     *
+     * @param line A line received from the server, without the line terminator. The line may be a view over a
+     *             reusable buffer, so it must not be kept after this method returns.
+     * @return true if this line completes the reply, false if more lines are expected.
+     */
+    abstract boolean onLine(CharSequence line);
+
+    /** Returns the result built from the reply, once onLine has returned true.
+     *
+     * @return The result of the command.
+     * @throws DictConnectionException If the reply didn't match its expected value.
+     */
+    T getResult() throws DictConnectionException {
+        if (error != null)
+            throw error;
+        return result();
+    }
+
+    abstract T result();
+
+    /** Records that the reply didn't match its expected value. The parser still consumes the rest of the reply so that
+     * the connection stays in sync with the server.
+     *
+     * @param message A description of the problem.
+     */
+    void fail(String message) {
+        if (error == null)
+            error = new DictConnectionException(message);
+    }
+
+    /** Checks whether a line starts with a specific three-digit status code.
+     */
+    static boolean hasCode(CharSequence line, String code) {
+        if (line.length() < 3 || (line.length() > 3 && line.charAt(3) != ' '))
+            return false;
+        for (int i = 0; i < 3; i++)
+            if (line.charAt(i) != code.charAt(i))
+                return false;
+        return true;
+    }
+
+    /** Checks whether a line of a text block is the "." line that terminates the block.
+     */
+    static boolean isTerminator(CharSequence line) {
+        return line.length() == 1 && line.charAt(0) == '.';
+    }
+
+    /** Returns the position where the content of a text-block line starts. The server doubles the leading dot of any
+     * line that starts with a dot, so that it can't be confused with the terminator, and that extra dot is skipped.
+     */
+    static int textStart(CharSequence line) {
+        return line.length() > 1 && line.charAt(0) == '.' ? 1 : 0;
+    }
+}
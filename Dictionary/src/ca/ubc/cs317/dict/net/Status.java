@@ -41,6 +41,17 @@ public class Status {
         }
     }
 
+    static Status readStatus(ReplyLineDecoder input) throws DictConnectionException {
+        try {
+            CharSequence line = input.readLine();
+            if (line == null)
+                throw new DictConnectionException("Connection closed by the server");
+            return new Status(line.toString());
+        } catch (IOException ex) {
+            throw new DictConnectionException();
+        }
+    }
+
     public int getStatusCode() {
         return statusCode;
     }
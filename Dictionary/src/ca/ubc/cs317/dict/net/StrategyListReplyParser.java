@@ -0,0 +1,53 @@
+package ca.ubc.cs317.dict.net;
+
+import ca.ubc.cs317.dict.model.MatchingStrategy;
+import ca.ubc.cs317.dict.util.AtomTokenizer;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Parses the reply to a SHOW STRAT command: 111 followed by a text block with one "name description" line per
+ * strategy and a final 250.
+ */
+class StrategyListReplyParser extends ReplyParser<Set<MatchingStrategy>> {
+
+    private static final int STATUS = 0, LIST = 1, COMPLETION = 2;
+
+    private final Set<MatchingStrategy> set = new LinkedHashSet<>();
+    private final AtomTokenizer tokenizer = new AtomTokenizer();
+
+    private int state = STATUS;
+
+    @Override
+    boolean onLine(CharSequence line) {
+        switch (state) {
+            case STATUS:
+                if (!hasCode(line, "111")) {
+                    fail("Unexpected reply to SHOW STRAT: " + line);
+                    return true;
+                }
+                state = LIST;
+                return false;
+
+            case LIST:
+                if (isTerminator(line)) {
+                    state = COMPLETION;
+                } else if (tokenizer.reset(line, textStart(line)).next()) {
+                    String name = tokenizer.atom();
+                    String description = tokenizer.next() ? tokenizer.atom() : "";
+                    set.add(new MatchingStrategy(name, description));
+                }
+                return false;
+
+            default:
+                // Empty the buffer
+                return true;
+        }
+    }
+
+    @Override
+    Set<MatchingStrategy> result() {
+        return set;
+    }
+}
@@ -1,13 +1,113 @@
 package ca.ubc.cs317.dict.ui;
 
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.TableColumnModelEvent;
+import javax.swing.event.TableColumnModelListener;
 import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableColumn;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Created by Jonatan on 2017-09-09.
+ *
+ * Renders definitions as text wrapped to the width of their column. A single component is reused for every cell, and
+ * the wrapped lines of each definition are computed once per column width and font, so painting a cell only draws its
+ * visible lines. Row heights follow from the same layouts, and are updated when the column is resized.
  */
 public class DefinitionRenderer implements TableCellRenderer {
+
+    private static final int TAB_SIZE = 8;
+    private static final int PADDING = 2;
+
+    private final DefinitionView view = new DefinitionView();
+
+    // Wrapped lines of each definition text, for the width and font below
+    private final Map<String, String[]> layouts = new HashMap<>();
+    private int layoutWidth = -1;
+    private Font layoutFont;
+
+    /** Sets this renderer on a column of a table, and keeps the heights of the rows of the table fitting the wrapped
+     * definitions when the column is resized.
+     *
+     * @param table The table showing definitions.
+     * @param column The index of the column showing the definitions, as displayed.
+     */
+    public void install(final JTable table, int column) {
+        final TableColumn tableColumn = table.getColumnModel().getColumn(column);
+        tableColumn.setCellRenderer(this);
+        table.getColumnModel().addColumnModelListener(new TableColumnModelListener() {
+            @Override
+            public void columnMarginChanged(ChangeEvent e) {
+                // Also fired while other columns are resized, which the wrapped lines don't depend on
+                if (tableColumn.getWidth() != layoutWidth)
+                    updateRowHeights(table, table.convertColumnIndexToView(tableColumn.getModelIndex()));
+            }
+
+            @Override
+            public void columnAdded(TableColumnModelEvent e) {
+            }
+
+            @Override
+            public void columnRemoved(TableColumnModelEvent e) {
+            }
+
+            @Override
+            public void columnMoved(TableColumnModelEvent e) {
+            }
+
+            @Override
+            public void columnSelectionChanged(ListSelectionEvent e) {
+            }
+        });
+    }
+
+    /** Sets the height of each row of a table to that of its wrapped definition, or to the default row height of the
+     * table if that is larger. Definitions already wrapped for the current width of the column are not wrapped again,
+     * and those no longer in the table are forgotten. This method must be called from the event dispatch thread.
+     *
+     * @param table The table showing definitions.
+     * @param column The index of the column showing the definitions, as displayed.
+     */
+    public void updateRowHeights(JTable table, int column) {
+        Map<String, String[]> retained = new HashMap<>();
+        updateRowHeights(table, column, 0, table.getRowCount() - 1, retained);
+        layouts.clear();
+        layouts.putAll(retained);
+    }
+
+    /** Sets the height of some rows of a table to that of their wrapped definitions, or to the default row height of
+     * the table if that is larger, such as rows that were just added. This method must be called from the event
+     * dispatch thread.
+     *
+     * @param table The table showing definitions.
+     * @param column The index of the column showing the definitions, as displayed.
+     * @param firstRow The first row to be updated.
+     * @param lastRow The last row to be updated, inclusive.
+     */
+    public void updateRowHeights(JTable table, int column, int firstRow, int lastRow) {
+        updateRowHeights(table, column, firstRow, lastRow, null);
+    }
+
+    private void updateRowHeights(JTable table, int column, int firstRow, int lastRow, Map<String, String[]> retained) {
+        int width = table.getColumnModel().getColumn(column).getWidth();
+        FontMetrics metrics = view.getFontMetrics(table.getFont());
+        for (int row = firstRow; row <= lastRow; row++) {
+            Object value = table.getValueAt(row, column);
+            String[] lines = layout(value, width, metrics);
+            if (retained != null)
+                retained.put(value == null ? "" : value.toString(), lines);
+            int height = Math.max(getTextHeight(lines, metrics), table.getRowHeight());
+            if (table.getRowHeight(row) != height)
+                table.setRowHeight(row, height);
+        }
+    }
+
     /**
      * Returns the component used for drawing the cell.  This method is
      * used to configure the renderer appropriately before drawing.
@@ -61,7 +161,142 @@ public class DefinitionRenderer implements TableCellRenderer {
      */
     @Override
     public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
-        JTextArea area = new JTextArea(value.toString());
-        return area;
+        FontMetrics metrics = view.getFontMetrics(table.getFont());
+        view.setFont(table.getFont());
+        view.setForeground(isSelected ? table.getSelectionForeground() : table.getForeground());
+        view.setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+        view.lines = layout(value, table.getColumnModel().getColumn(column).getWidth(), metrics);
+        return view;
+    }
+
+    private String[] layout(Object value, int width, FontMetrics metrics) {
+        if (width != layoutWidth || !metrics.getFont().equals(layoutFont)) {
+            layouts.clear();
+            layoutWidth = width;
+            layoutFont = metrics.getFont();
+        }
+        String text = value == null ? "" : value.toString();
+        String[] lines = layouts.get(text);
+        if (lines == null) {
+            lines = wrap(text, width - 2 * PADDING, metrics);
+            layouts.put(text, lines);
+        }
+        return lines;
+    }
+
+    private static int getTextHeight(String[] lines, FontMetrics metrics) {
+        return 2 * PADDING + lines.length * metrics.getHeight();
+    }
+
+    // Breaks each line of the text after the last space that fits in the width, or after the last character that
+    // fits if there is no such space, the way a JTextArea wraps words
+    private static String[] wrap(String text, int width, FontMetrics metrics) {
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\r?\n", -1)) {
+            line = expandTabs(line);
+            int start = 0;
+            do {
+                int end = start;
+                int lineWidth = 0;
+                int lastSpace = -1;
+                while (end < line.length()) {
+                    char c = line.charAt(end);
+                    lineWidth += metrics.charWidth(c);
+                    if (lineWidth > width && end > start)
+                        break;
+                    if (c == ' ')
+                        lastSpace = end;
+                    end++;
+                }
+                if (end < line.length() && lastSpace >= start)
+                    end = lastSpace + 1;
+                lines.add(line.substring(start, end));
+                start = end;
+            } while (start < line.length());
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    private static String expandTabs(String line) {
+        if (line.indexOf('\t') < 0)
+            return line;
+        StringBuilder builder = new StringBuilder(line.length() + TAB_SIZE);
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c != '\t')
+                builder.append(c);
+            else
+                do builder.append(' '); while (builder.length() % TAB_SIZE != 0);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Draws the wrapped lines of a definition. Like DefaultTableCellRenderer, it skips the validation and repaints
+     * JComponent would trigger on each change, since it is only ever painted by the table.
+     */
+    private static class DefinitionView extends JComponent {
+
+        private static final long serialVersionUID = 1L;
+
+        private String[] lines = new String[0];
+
+        private DefinitionView() {
+            setOpaque(true);
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension(0, getTextHeight(lines, getFontMetrics(getFont())));
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            g.setColor(getForeground());
+            g.setFont(getFont());
+            FontMetrics metrics = g.getFontMetrics();
+            Rectangle clip = g.getClipBounds();
+            int lineHeight = metrics.getHeight();
+
+            // Only the lines intersecting the clip are drawn, which matters for long definitions
+            int first = 0;
+            int last = lines.length;
+            if (clip != null) {
+                first = Math.max(0, (clip.y - PADDING) / lineHeight);
+                last = Math.min(lines.length, (clip.y + clip.height - PADDING) / lineHeight + 1);
+            }
+            for (int i = first; i < last; i++)
+                g.drawString(lines[i], PADDING, PADDING + i * lineHeight + metrics.getAscent());
+        }
+
+        @Override
+        public void invalidate() {
+        }
+
+        @Override
+        public void validate() {
+        }
+
+        @Override
+        public void revalidate() {
+        }
+
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {
+        }
+
+        @Override
+        public void repaint(Rectangle r) {
+        }
+
+        @Override
+        public void repaint() {
+        }
+
+        @Override
+        protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+        }
     }
 }
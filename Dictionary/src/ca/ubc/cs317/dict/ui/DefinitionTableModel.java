@@ -6,6 +6,7 @@ import javax.swing.table.AbstractTableModel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Created by Jonatan on 2017-09-09.
@@ -73,9 +74,64 @@ public class DefinitionTableModel extends AbstractTableModel {
         }
     }
 
+    /** Replaces all definitions, redrawing the whole table. Like all other methods changing the model, it must be
+     * called from the event dispatch thread.
+     *
+     * @param definitions The definitions to be shown.
+     */
     public void populateDefinitions(Collection<Definition> definitions) {
         definitionList.clear();
         definitionList.addAll(definitions);
         fireTableDataChanged();
     }
+
+    /** Adds definitions after those already in the model, notifying the table of the new rows only.
+     *
+     * @param definitions The definitions to be added, in order.
+     */
+    public void appendDefinitions(Collection<Definition> definitions) {
+        if (definitions.isEmpty())
+            return;
+        int first = definitionList.size();
+        definitionList.addAll(definitions);
+        fireTableRowsInserted(first, definitionList.size() - 1);
+    }
+
+    /** Replaces all definitions, notifying the table only of the rows that differ. Rows at the start and at the end
+     * that show the same definitions as before are kept, and the rows in between are updated, with rows inserted or
+     * deleted for the difference in length. Replacing definitions with those already shown thus changes nothing.
+     *
+     * @param definitions The definitions to be shown.
+     */
+    public void replaceDefinitions(Collection<Definition> definitions) {
+        List<Definition> replacement = new ArrayList<>(definitions);
+        int oldSize = definitionList.size();
+        int newSize = replacement.size();
+
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize && same(definitionList.get(prefix), replacement.get(prefix)))
+            prefix++;
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && same(definitionList.get(oldSize - 1 - suffix), replacement.get(newSize - 1 - suffix)))
+            suffix++;
+
+        definitionList = replacement;
+        int oldEnd = oldSize - suffix;
+        int newEnd = newSize - suffix;
+        int updatedEnd = prefix + Math.min(oldEnd - prefix, newEnd - prefix);
+        if (updatedEnd > prefix)
+            fireTableRowsUpdated(prefix, updatedEnd - 1);
+        if (newEnd > oldEnd)
+            fireTableRowsInserted(updatedEnd, newEnd - 1);
+        else if (oldEnd > newEnd)
+            fireTableRowsDeleted(updatedEnd, oldEnd - 1);
+    }
+
+    // Definitions are not compared with equals, since they are mutable and the same reply parsed twice gives new ones
+    private static boolean same(Definition a, Definition b) {
+        return a == b || a.getWord().equals(b.getWord())
+                && a.getDatabase().getName().equals(b.getDatabase().getName())
+                && Objects.equals(a.getDefinition(), b.getDefinition());
+    }
 }
@@ -1,10 +1,18 @@
 package ca.ubc.cs317.dict.ui;
 
+import ca.ubc.cs317.dict.cache.CachingDictionaryClient;
+import ca.ubc.cs317.dict.cache.DiskDefinitionCache;
 import ca.ubc.cs317.dict.exception.DictConnectionException;
+import ca.ubc.cs317.dict.index.DefinitionIndex;
+import ca.ubc.cs317.dict.index.HeadwordTrie;
+import ca.ubc.cs317.dict.index.IndexedDictionaryClient;
+import ca.ubc.cs317.dict.local.LocalDictionary;
 import ca.ubc.cs317.dict.model.Database;
 import ca.ubc.cs317.dict.model.Definition;
 import ca.ubc.cs317.dict.model.MatchingStrategy;
-import ca.ubc.cs317.dict.net.DictionaryConnection;
+import ca.ubc.cs317.dict.net.DefinitionListener;
+import ca.ubc.cs317.dict.net.DictionaryClient;
+import ca.ubc.cs317.dict.net.DictionaryConnectionPool;
 
 import javax.swing.*;
 import java.awt.*;
@@ -12,8 +20,19 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -21,7 +40,19 @@ import java.util.concurrent.ExecutionException;
  */
 public class DictionaryMain extends JFrame {
 
-    private DictionaryConnection connection;
+    private static final String CACHE_DIRECTORY = ".dictionary-cache";
+    private static final long DISK_CACHE_SIZE = 64L * 1024 * 1024;
+
+    private static final int MAX_SUGGESTIONS = 100;
+    private static final int MAX_TEXT_RESULTS = 50;
+
+    private DictionaryClient connection;
+    private IndexedDictionaryClient headwordIndex;
+    private LocalDictionary localDictionary;
+    private CachingDictionaryClient cachingClient;
+    // Full-text indexes of the local databases, by name, built when first searched
+    private Map<String, DefinitionIndex> textIndexes = new ConcurrentHashMap<>();
+    private final Set<Database> indexedDatabases = new HashSet<>();
     private String serverName = "dict.org";
 
     private DefaultComboBoxModel<Database> databaseModel;
@@ -30,8 +61,11 @@ public class DictionaryMain extends JFrame {
 
     private JComboBox<Database> databaseSelection;
     private JComboBox<MatchingStrategy> strategySelection;
+    private JButton indexButton;
     private WordSearchField wordSearchField;
     private JTable definitionTable;
+    private final DefinitionRenderer definitionRenderer = new DefinitionRenderer();
+    private SwingWorker<Collection<Definition>, Definition> definitionWorker;
 
     DictionaryMain() {
         super("Dictionary");
@@ -58,11 +92,27 @@ public class DictionaryMain extends JFrame {
         databaseLabel.setHorizontalAlignment(JLabel.TRAILING);
         databaseSelection = new JComboBox<>(databaseModel);
         databaseLabel.setLabelFor(databaseSelection);
+        databaseSelection.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                indexSelectedDatabase(false);
+            }
+        });
         c.gridwidth = c.RELATIVE;
         optionsPanel.add(databaseLabel, c);
         c.gridwidth = c.REMAINDER;
         optionsPanel.add(databaseSelection, c);
 
+        indexButton = new JButton("Index database");
+        indexButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                indexSelectedDatabase(true);
+            }
+        });
+        c.gridwidth = c.REMAINDER;
+        optionsPanel.add(indexButton, c);
+
         JLabel strategyLabel = new JLabel("Hint Strategy:");
         strategyLabel.setHorizontalAlignment(JLabel.TRAILING);
         strategySelection = new JComboBox<>(strategyModel);
@@ -96,11 +146,21 @@ public class DictionaryMain extends JFrame {
             }
         });
         this.getRootPane().setDefaultButton(searchButton);
-        searchPanel.add(searchButton, BorderLayout.LINE_END);
+        JButton textSearchButton = new JButton("Search text");
+        textSearchButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                searchDefinitionText();
+            }
+        });
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 0));
+        buttonPanel.add(searchButton);
+        buttonPanel.add(textSearchButton);
+        searchPanel.add(buttonPanel, BorderLayout.LINE_END);
 
         definitionModel = new DefinitionTableModel();
         definitionTable = new JTable(definitionModel);
-        definitionTable.getColumnModel().getColumn(2).setCellRenderer(new DefinitionRenderer());
+        definitionRenderer.install(definitionTable, 2);
         definitionTable.getColumnModel().getColumn(0).setPreferredWidth(30);
         definitionTable.getColumnModel().getColumn(1).setPreferredWidth(30);
         definitionTable.getColumnModel().getColumn(2).setPreferredWidth(500);
@@ -113,56 +173,165 @@ public class DictionaryMain extends JFrame {
     }
 
     public void showDefinitions() {
+        // Definitions still arriving for a previous search would otherwise be added to the new ones
+        SwingWorker<Collection<Definition>, Definition> superseded = definitionWorker;
 
-        new SwingWorker<Void, Void>() {
+        definitionWorker = new SwingWorker<Collection<Definition>, Definition>() {
             private String word = wordSearchField.getSelectedItem().toString();
+            private Database database = (Database) databaseModel.getSelectedItem();
+            private boolean received;
 
             @Override
-            protected Void doInBackground() throws Exception {
-                definitionModel.populateDefinitions(connection.getDefinitions(word,
-                        (Database) databaseModel.getSelectedItem()));
-                return null;
+            protected Collection<Definition> doInBackground() throws Exception {
+                return connection.getDefinitions(word, database, new DefinitionListener() {
+                    @Override
+                    public void definitionReceived(Definition definition) {
+                        publish(definition);
+                    }
+                });
+            }
+
+            @Override
+            protected void process(List<Definition> definitions) {
+                if (definitionWorker != this)
+                    return;
+                // The first definitions replace the previous results, keeping the rows they have in common
+                int first = received ? definitionModel.getRowCount() : 0;
+                if (received)
+                    definitionModel.appendDefinitions(definitions);
+                else
+                    definitionModel.replaceDefinitions(definitions);
+                received = true;
+                definitionRenderer.updateRowHeights(definitionTable, 2, first, definitionModel.getRowCount() - 1);
             }
 
             @Override
             protected void done() {
+                if (definitionWorker != this)
+                    return;
+                definitionWorker = null;
                 try {
-                    get(); // Just to trigger a possible exception caused by doInBackground
-                    for (int i = 0; i<definitionModel.getRowCount() ; i++) {
-                        Component c = definitionTable.prepareRenderer(definitionTable.getCellRenderer(i, 2), i, 2);
-                        definitionTable.setRowHeight(i, Math.max((int) c.getPreferredSize().getHeight(), definitionTable.getRowHeight()));
-                    }
+                    // Usually the definitions already shown, unless none were received or some came from elsewhere
+                    definitionModel.replaceDefinitions(get());
+                    definitionRenderer.updateRowHeights(definitionTable, 2);
                 } catch (InterruptedException e) {
                     e.printStackTrace();
                 } catch (ExecutionException e) {
                     handleException(e.getCause());
                 }
             }
-        }.execute();
+        };
+        // The superseded search is left to finish without interrupting it, since its reply may still be written to the
+        // disk cache; cancelling from the event dispatch thread calls done right away, which must see it as superseded
+        if (superseded != null)
+            superseded.cancel(false);
+        definitionWorker.execute();
+    }
+
+    /** Shows the definitions whose text best matches the words typed, best match first. For a local dictionary, the
+     * entries of the selected database, or of every database, are searched, each database being indexed the first
+     * time it is searched. Otherwise, the definitions cached so far are searched, and indexed again for each search
+     * since the cache keeps changing.
+     *
+     */
+    public void searchDefinitionText() {
+        SwingWorker<Collection<Definition>, Definition> superseded = definitionWorker;
 
+        definitionWorker = new SwingWorker<Collection<Definition>, Definition>() {
+            private String query = wordSearchField.getSelectedItem().toString();
+            private Database database = (Database) databaseModel.getSelectedItem();
+            private LocalDictionary local = localDictionary;
+            private CachingDictionaryClient cache = cachingClient;
+            private Map<String, DefinitionIndex> indexes = textIndexes;
+
+            @Override
+            protected Collection<Definition> doInBackground() throws Exception {
+                boolean allDatabases = database.getName().equals("*") || database.getName().equals("!");
+                List<Definition> found = new ArrayList<>();
+                if (local != null) {
+                    for (Database db : allDatabases ? local.getDatabaseList() : Collections.singletonList(database)) {
+                        DefinitionIndex index = indexes.get(db.getName());
+                        if (index == null) {
+                            index = DefinitionIndex.build(local.getEntries(db));
+                            indexes.put(db.getName(), index);
+                        }
+                        found.addAll(index.search(query, MAX_TEXT_RESULTS));
+                        if (!found.isEmpty() && database.getName().equals("!"))
+                            break;
+                    }
+                } else if (cache != null) {
+                    DefinitionIndex index = DefinitionIndex.build(cache.getCachedDefinitions(database));
+                    found.addAll(index.search(query, MAX_TEXT_RESULTS));
+                }
+                return found;
+            }
+
+            @Override
+            protected void done() {
+                if (definitionWorker != this)
+                    return;
+                definitionWorker = null;
+                try {
+                    definitionModel.replaceDefinitions(get());
+                    definitionRenderer.updateRowHeights(definitionTable, 2);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                } catch (ExecutionException e) {
+                    // The connection itself is fine, only the text of some definitions couldn't be read
+                    JOptionPane.showMessageDialog(DictionaryMain.this, "Unable to search the definitions:\n"
+                            + e.getCause(), "Search error", JOptionPane.WARNING_MESSAGE);
+                }
+            }
+        };
+        if (superseded != null)
+            superseded.cancel(false);
+        definitionWorker.execute();
     }
 
     public void establishConnection() {
         if (connection != null)
             connection.close();
 
+        // A search still running on the old connection must not fill the table once it has been cleared
+        SwingWorker<Collection<Definition>, Definition> superseded = definitionWorker;
+        definitionWorker = null;
+        if (superseded != null)
+            superseded.cancel(false);
+
         definitionModel.populateDefinitions(Collections.<Definition>emptyList());
         databaseModel.removeAllElements();
         databaseModel.addElement(new Database("*", "All databases"));
         databaseModel.addElement(new Database("!", "Any database"));
         strategyModel.removeAllElements();
         wordSearchField.reset();
+        headwordIndex = null;
+        localDictionary = null;
+        cachingClient = null;
+        textIndexes = new ConcurrentHashMap<>();
+        indexedDatabases.clear();
 
         try {
             serverName = JOptionPane.showInputDialog(this, "Dictionary server",
                     serverName);
             if (serverName == null) System.exit(0);
 
-            if (serverName.contains(":")) {
-                String[] serverData = serverName.split(":", 2);
-                connection = new DictionaryConnection(serverData[0], Integer.parseInt(serverData[1]));
-            } else
-                connection = new DictionaryConnection(serverName);
+            DictionaryClient client;
+            Path localDirectory = localDirectory(serverName);
+            if (localDirectory != null) {
+                // A directory holding dictd database files is used without a server
+                client = localDictionary = new LocalDictionary(localDirectory);
+            } else {
+                if (serverName.contains(":")) {
+                    String[] serverData = serverName.split(":", 2);
+                    cachingClient = new CachingDictionaryClient(new DictionaryConnectionPool(serverData[0], Integer.parseInt(serverData[1])));
+                } else
+                    cachingClient = new CachingDictionaryClient(new DictionaryConnectionPool(serverName));
+                cachingClient.setDiskCache(openDiskCache(serverName));
+                client = cachingClient;
+            }
+            connection = headwordIndex = new IndexedDictionaryClient(client, MAX_SUGGESTIONS);
+            // Local databases are indexed as soon as they are selected
+            indexButton.setEnabled(localDictionary == null);
 
             for (Database db : connection.getDatabaseList()) {
                 databaseModel.addElement(db);
@@ -180,6 +349,69 @@ public class DictionaryMain extends JFrame {
         wordSearchField.grabFocus();
     }
 
+    /** Builds, in the background, the headword index of the selected database if it is a regular database, so that
+     * suggestions for it no longer need a round trip to the server. Local databases are indexed from their index
+     * files as soon as they are selected, while a server is only asked for the headword list of a database on request,
+     * since it sends the whole list. Failures are reported, and the database can then be indexed again.
+     *
+     * @param requested true if the index was requested, false if the database was just selected.
+     */
+    private void indexSelectedDatabase(boolean requested) {
+        final IndexedDictionaryClient index = headwordIndex;
+        final LocalDictionary local = localDictionary;
+        final Database database = (Database) databaseModel.getSelectedItem();
+        if (index == null || database == null || database.getName().equals("*") || database.getName().equals("!")
+                || local == null && !requested || !indexedDatabases.add(database))
+            return;
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                if (local != null)
+                    index.setIndex(database, HeadwordTrie.build(local.getHeadwords(database)));
+                else
+                    index.buildIndex(database);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                } catch (ExecutionException e) {
+                    // Suggestions still work without the index, so the connection is kept
+                    if (headwordIndex != index)
+                        return;
+                    indexedDatabases.remove(database);
+                    JOptionPane.showMessageDialog(DictionaryMain.this, "Unable to index " + database.getName() + ":\n"
+                            + e.getCause(), "Index error", JOptionPane.WARNING_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private static Path localDirectory(String serverName) {
+        try {
+            Path path = Paths.get(serverName);
+            return Files.isDirectory(path) ? path : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static DiskDefinitionCache openDiskCache(String serverName) {
+        Path directory = Paths.get(System.getProperty("user.home"), CACHE_DIRECTORY,
+                serverName.replaceAll("[^A-Za-z0-9.-]", "_"));
+        try {
+            return new DiskDefinitionCache(directory, DISK_CACHE_SIZE);
+        } catch (IOException e) {
+            // Also the case when another instance is using the cache; definitions are then only cached in memory
+            return null;
+        }
+    }
+
     public Collection<String> getMatchList(String word) throws DictConnectionException {
         return connection.getMatchList(word,
                 (MatchingStrategy) strategyModel.getSelectedItem(),
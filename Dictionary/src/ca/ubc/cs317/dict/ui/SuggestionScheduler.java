@@ -0,0 +1,203 @@
+package ca.ubc.cs317.dict.ui;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Decides when the suggestions for the text being typed are looked up. A lookup only starts once the text has not
+ * changed for a short delay, so a word typed quickly is looked up once instead of once per character, and only the
+ * latest text is ever looked up, the intermediate ones being dropped.
+ *
+ * Typing while a lookup is running supersedes it: its SwingWorker is cancelled and interrupted, and its result will
+ * never be shown, so the new text is looked up as soon as its own delay has elapsed instead of waiting behind it. A
+ * DictionaryConnectionPool drops an interrupted request that has not been sent yet, and otherwise finishes reading its
+ * reply on the cancelled worker, on a connection of its own, without holding up the next lookup.
+ *
+ * The delay adapts to the server: it is at least the configured debounce delay, and grows up to the average time taken
+ * by recent lookups (an exponentially weighted moving average), bounded by a maximum. Against a slow server, the user
+ * thus has to pause for longer before a request is sent, which would otherwise only be superseded.
+ *
+ * All methods must be called from the event dispatch thread. Subclasses provide the lookup, run by a SwingWorker, and
+ * receive its result on the event dispatch thread.
+ */
+public abstract class SuggestionScheduler {
+
+    public static final int DEFAULT_DEBOUNCE_DELAY = 150;
+    public static final int DEFAULT_MAX_DELAY = 600;
+
+    // Weight of the latest lookup in the average latency
+    private static final double LATENCY_WEIGHT = 0.25;
+
+    private final Timer timer;
+    private int debounceDelay;
+    private int maxDelay;
+    private double averageLatency = -1;
+
+    private String pending;
+    private SwingWorker<Set<String>, Void> running;
+    private String runningWord;
+    private long runningSince;
+
+    /** Creates a scheduler with the default delays.
+     *
+     */
+    public SuggestionScheduler() {
+        this(DEFAULT_DEBOUNCE_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    /** Creates a scheduler.
+     *
+     * @param debounceDelay Minimum time, in milliseconds, the text must stay unchanged before it is looked up.
+     * @param maxDelay Maximum time, in milliseconds, the text must stay unchanged before it is looked up, however slow
+     *                 lookups are.
+     */
+    public SuggestionScheduler(int debounceDelay, int maxDelay) {
+        this.debounceDelay = debounceDelay;
+        this.maxDelay = Math.max(debounceDelay, maxDelay);
+        timer = new Timer(debounceDelay, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                startLookup();
+            }
+        });
+        timer.setRepeats(false);
+    }
+
+    /** Looks up the suggestions for a word. This method is run by a SwingWorker, outside of the event dispatch thread.
+     *
+     * @param word The text typed.
+     * @return The suggestions for the text.
+     * @throws Exception If the suggestions can't be retrieved.
+     */
+    protected abstract Set<String> lookup(String word) throws Exception;
+
+    /** Receives the suggestions for a word, on the event dispatch thread. The word may no longer be the latest text
+     * scheduled, if the text changed while it was looked up.
+     *
+     * @param word The text looked up.
+     * @param suggestions The suggestions for the text.
+     */
+    protected abstract void suggestionsFound(String word, Set<String> suggestions);
+
+    /** Receives the exception thrown by a lookup, on the event dispatch thread.
+     *
+     * @param word The text looked up.
+     * @param cause The exception thrown by lookup.
+     */
+    protected abstract void lookupFailed(String word, Throwable cause);
+
+    /** Schedules a lookup of the latest text, replacing any text scheduled but not looked up yet, and cancelling the
+     * lookup running, unless it is for the same text.
+     *
+     * @param word The text typed, or an empty string to cancel any lookup.
+     */
+    public void schedule(String word) {
+        if (word.isEmpty()) {
+            cancel();
+            return;
+        }
+        if (running != null && word.equals(runningWord)) {
+            pending = null;
+            timer.stop();
+            return;
+        }
+        abandonLookup();
+        pending = word;
+        timer.setInitialDelay(getDelay());
+        timer.restart();
+    }
+
+    /** Drops the text scheduled and cancels the lookup running, if any.
+     *
+     */
+    public void cancel() {
+        pending = null;
+        timer.stop();
+        abandonLookup();
+    }
+
+    /** Returns the time the text must stay unchanged before it is looked up, given how long recent lookups took.
+     *
+     * @return The delay, in milliseconds.
+     */
+    public int getDelay() {
+        if (averageLatency < 0)
+            return debounceDelay;
+        return (int) Math.max(debounceDelay, Math.min(maxDelay, averageLatency));
+    }
+
+    public int getDebounceDelay() {
+        return debounceDelay;
+    }
+
+    public void setDebounceDelay(int debounceDelay) {
+        this.debounceDelay = debounceDelay;
+        maxDelay = Math.max(maxDelay, debounceDelay);
+    }
+
+    public int getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(int maxDelay) {
+        this.maxDelay = Math.max(maxDelay, debounceDelay);
+    }
+
+    private void startLookup() {
+        if (running != null || pending == null)
+            return;
+        final String word = pending;
+        pending = null;
+        runningWord = word;
+        runningSince = System.nanoTime();
+
+        running = new SwingWorker<Set<String>, Void>() {
+            @Override
+            protected Set<String> doInBackground() throws Exception {
+                return lookup(word);
+            }
+
+            @Override
+            protected void done() {
+                // The result of a superseded lookup is never shown
+                if (running != this)
+                    return;
+                recordLatency(System.nanoTime() - runningSince);
+                running = null;
+                runningWord = null;
+                try {
+                    suggestionsFound(word, get());
+                } catch (ExecutionException e) {
+                    lookupFailed(word, e.getCause());
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        running.execute();
+    }
+
+    private void abandonLookup() {
+        if (running == null)
+            return;
+
+        // The lookup took at least this long, which still tells how slow the server is
+        long elapsed = System.nanoTime() - runningSince;
+        if (elapsed / 1e6 > averageLatency)
+            recordLatency(elapsed);
+        // Cancelling from the event dispatch thread calls done right away, which must see the lookup as superseded
+        SwingWorker<Set<String>, Void> superseded = running;
+        running = null;
+        runningWord = null;
+        superseded.cancel(true);
+    }
+
+    private void recordLatency(long nanos) {
+        double latency = nanos / 1e6;
+        averageLatency = averageLatency < 0 ? latency
+                : LATENCY_WEIGHT * latency + (1 - LATENCY_WEIGHT) * averageLatency;
+    }
+}
@@ -6,7 +6,6 @@ import javax.swing.event.DocumentListener;
 import javax.swing.plaf.metal.MetalComboBoxEditor;
 import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 
 /**
  * Created by Jonatan on 2017-09-10.
@@ -17,6 +16,7 @@ public class WordSearchField extends JComboBox<String> implements DocumentListen
     private JTextField textField;
 
     private DefaultComboBoxModel<String> model;
+    private SuggestionScheduler scheduler;
 
     public WordSearchField(DictionaryMain main) {
 
@@ -36,6 +36,36 @@ public class WordSearchField extends JComboBox<String> implements DocumentListen
             }
         });
         textField = (JTextField) getEditor().getEditorComponent();
+
+        // Suggestions are only looked up once the user pauses typing, for the latest text
+        scheduler = new SuggestionScheduler() {
+            @Override
+            protected Set<String> lookup(String word) throws Exception {
+                Set<String> matches = new LinkedHashSet<>();
+                matches.add(word);
+                matches.addAll(WordSearchField.this.main.getMatchList(word));
+                return matches;
+            }
+
+            @Override
+            protected void suggestionsFound(String word, Set<String> suggestions) {
+                // If user typed another character since this lookup started, stop
+                if (!textField.getText().equals(word)) return;
+                model.removeAllElements();
+                for (String match : suggestions) {
+                    model.addElement(match);
+                }
+                if (model.getSize() > 1)
+                    showPopup();
+                else
+                    hidePopup();
+            }
+
+            @Override
+            protected void lookupFailed(String word, Throwable cause) {
+                WordSearchField.this.main.handleException(cause);
+            }
+        };
         textField.getDocument().addDocumentListener(this);
     }
 
@@ -61,40 +91,11 @@ public class WordSearchField extends JComboBox<String> implements DocumentListen
 
 
     public void showSuggestions() {
-        final String typed = textField.getText();
         model.removeAllElements();
-        if (typed.isEmpty())
-            return;
-
-        new SwingWorker<Set<String>, String>() {
-            String word = typed;
-
-            @Override
-            protected Set<String> doInBackground() throws Exception {
-                Set<String> matches = new LinkedHashSet<>();
-                matches.add(word);
-                matches.addAll(main.getMatchList(word));
-                return matches;
-            }
+        scheduler.schedule(textField.getText());
+    }
 
-            @Override
-            protected void done() {
-                // If user typed another character since this worker started, stop
-                if (!textField.getText().equals(word)) return;
-                try {
-                    for (String match : this.get()) {
-                        model.addElement(match);
-                    }
-                    if (model.getSize() > 1)
-                        showPopup();
-                    else
-                        hidePopup();
-                } catch (ExecutionException e) {
-                    main.handleException(e.getCause());
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-        }.execute();
+    public SuggestionScheduler getScheduler() {
+        return scheduler;
     }
 }
@@ -0,0 +1,90 @@
+package ca.ubc.cs317.dict.util;
+
+/**
+ * Walks through the DICT atoms of a line with index cursors, following the same rules as
+ * DictStringParser.splitAtoms, but without allocating an array or any string that is not explicitly requested. A
+ * single tokenizer can be reused for every line of a reply.
+ */
+public class AtomTokenizer {
+
+    private CharSequence line = "";
+    private int position;
+    private int start;
+    private int end;
+
+    /** Starts tokenizing a new line.
+     *
+     * @param line The line to be tokenized.
+     * @return This tokenizer.
+     */
+    public AtomTokenizer reset(CharSequence line) {
+        return reset(line, 0);
+    }
+
+    /** Starts tokenizing a new line, ignoring its first characters.
+     *
+     * @param line The line to be tokenized.
+     * @param from Position of the first character to be tokenized.
+     * @return This tokenizer.
+     */
+    public AtomTokenizer reset(CharSequence line, int from) {
+        this.line = line;
+        this.position = from;
+        this.start = from;
+        this.end = from;
+        return this;
+    }
+
+    /** Moves to the next atom of the line.
+     *
+     * @return true if there was another atom, false if the end of the line was reached.
+     */
+    public boolean next() {
+        start = DictStringParser.skipSpaces(line, position);
+        if (start >= line.length()) {
+            end = position = start;
+            return false;
+        }
+        end = position = DictStringParser.atomEnd(line, start);
+        return true;
+    }
+
+    /** Skips a number of atoms, leaving the tokenizer on the last atom skipped.
+     *
+     * @param count Number of atoms to move forward.
+     * @return true if all atoms were found, false if the end of the line was reached first.
+     */
+    public boolean skip(int count) {
+        for (int i = 0; i < count; i++)
+            if (!next())
+                return false;
+        return true;
+    }
+
+    /** Returns the value of the current atom, without its quotes and escapes.
+     *
+     * @return The current atom.
+     */
+    public String atom() {
+        return DictStringParser.value(line, start, end);
+    }
+
+    /** Returns the rest of the line after the current atom, with leading spaces removed. This is useful for status
+     * lines, whose text after the code is free-form.
+     *
+     * @return The remainder of the line.
+     */
+    public String remainder() {
+        return line.subSequence(DictStringParser.skipSpaces(line, end), line.length()).toString();
+    }
+
+    /** Compares the current atom with a value, without creating a string for the atom. Atoms with escapes are compared
+     * after their escapes are removed.
+     *
+     * @param value The value to be compared with.
+     * @return true if the current atom is equal to the value.
+     */
+    public boolean atomEquals(CharSequence value) {
+        return DictStringParser.valueEquals(line, start, end, value);
+    }
+}
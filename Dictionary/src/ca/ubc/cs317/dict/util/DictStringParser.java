@@ -2,16 +2,12 @@ package ca.ubc.cs317.dict.util;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Created by Jonatan on 2017-09-09.
  */
 public class DictStringParser {
 
-    private static Pattern stringUnit = Pattern.compile("\"([^\"]*)\"|(\\S+)");
-
     /** Splits a String into DICT-supported atoms. This is equivalent to String.split, but if a set of quotes is found,
      * the spaces within the quotes are not used for splitting.
      *
@@ -20,10 +16,114 @@ public class DictStringParser {
      */
     public static String[] splitAtoms(String original) {
         List<String> list = new ArrayList<>();
-        Matcher m = stringUnit.matcher(original);
-        while (m.find()) {
-            list.add(m.group(m.group(1) != null ? 1 : 2));
+        int start = skipSpaces(original, 0);
+        while (start < original.length()) {
+            int end = atomEnd(original, start);
+            list.add(value(original, start, end));
+            start = skipSpaces(original, end);
         }
         return list.toArray(new String[list.size()]);
     }
+
+    /** Returns a single atom of a line, without splitting the rest of the line. Quotes and spaces are handled as in
+     * splitAtoms.
+     *
+     * @param line Line containing the atoms.
+     * @param index Position of the atom, starting at 0.
+     * @return The atom at that position, or null if the line has fewer atoms.
+     */
+    public static String atom(CharSequence line, int index) {
+        int start = skipSpaces(line, 0);
+        while (start < line.length()) {
+            int end = atomEnd(line, start);
+            if (index-- == 0)
+                return value(line, start, end);
+            start = skipSpaces(line, end);
+        }
+        return null;
+    }
+
+    static int skipSpaces(CharSequence line, int position) {
+        while (position < line.length() && isSpace(line.charAt(position)))
+            position++;
+        return position;
+    }
+
+    /** Finds the end of the atom starting at a specific position. A quoted atom ends right after its closing quote,
+     * and a backslash inside quotes escapes the next character. A quote without a matching closing quote is treated as
+     * part of an unquoted atom, which ends at the next space.
+     */
+    static int atomEnd(CharSequence line, int start) {
+        int end = quotedEnd(line, start);
+        if (end >= 0)
+            return end;
+
+        end = start;
+        while (end < line.length() && !isSpace(line.charAt(end)))
+            end++;
+        return end;
+    }
+
+    /** Returns the value of the atom between start and end, as found by atomEnd, without its quotes and escapes.
+     */
+    static String value(CharSequence line, int start, int end) {
+        if (quotedEnd(line, start) != end)
+            return line.subSequence(start, end).toString();
+
+        int from = start + 1, to = end - 1;
+        if (indexOf(line, '\\', from, to) < 0)
+            return line.subSequence(from, to).toString();
+
+        StringBuilder builder = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c == '\\')
+                c = line.charAt(++i);
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /** Compares the value of the atom between start and end with another value, without creating a string.
+     */
+    static boolean valueEquals(CharSequence line, int start, int end, CharSequence value) {
+        int from = start, to = end;
+        if (quotedEnd(line, start) == end) {
+            from++;
+            to--;
+        }
+        int j = 0;
+        for (int i = from; i < to; i++, j++) {
+            char c = line.charAt(i);
+            if (c == '\\' && to < end)
+                c = line.charAt(++i);
+            if (j >= value.length() || value.charAt(j) != c)
+                return false;
+        }
+        return j == value.length();
+    }
+
+    private static int quotedEnd(CharSequence line, int start) {
+        if (line.charAt(start) != '"')
+            return -1;
+        for (int i = start + 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length())
+                i++;
+            else if (c == '"')
+                return i + 1;
+        }
+        return -1;
+    }
+
+    private static int indexOf(CharSequence line, char c, int from, int to) {
+        for (int i = from; i < to; i++)
+            if (line.charAt(i) == c)
+                return i;
+        return -1;
+    }
+
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+    }
 }